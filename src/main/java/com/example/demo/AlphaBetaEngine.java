@@ -0,0 +1,437 @@
+package com.example.demo;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Move engine that searches the game tree with negamax and alpha-beta pruning.
+ * The transposition table is keyed on canonical positions, so symmetric positions share entries.
+ * Moves are ordered by the transposition table's best move first, then by how many
+ * lines pass through each cell. Positions beyond the search depth are scored by
+ * counting the lines each player can still complete.
+ * An engine searches one position at a time; give each concurrent game its own engine.
+ */
+public class AlphaBetaEngine implements MoveEngine {
+    public static final int WIN_SCORE = 1_000_000;
+    static final int WIN_THRESHOLD = WIN_SCORE - 1000;
+    private static final int INFINITY = WIN_SCORE + 1;
+    private static final int TABLE_SIZE_BITS = 16;
+
+    private final long timeBudgetMillis;
+    private final int maxDepth;
+    private final TranspositionTable table;
+    private final boolean ownsTable;
+    // Stops the search when it returns true, such as when a parallel search is cancelled (or null)
+    private final BooleanSupplier stopSignal;
+
+    // State of the current search
+    private int size;
+    private LineTable preparedLines;
+    private int[] cellOrder;
+    private int[][] moveBuffers;
+    private int[] lineWeights;
+    private long deadline;
+    private boolean aborted;
+    private volatile boolean cancelled;
+    private long nodes;
+    private int lastScore;
+
+    /**
+     * Creates an engine that searches to the default depth for the board size
+     * @param timeBudgetMillis Maximum time to spend on a move, in milliseconds
+     */
+    public AlphaBetaEngine(long timeBudgetMillis) {
+        this(timeBudgetMillis, 0);
+    }
+
+    /**
+     * Creates an engine with a fixed search depth
+     * @param timeBudgetMillis Maximum time to spend on a move, in milliseconds
+     * @param maxDepth Search depth in plies, or 0 for the default for the board size
+     */
+    public AlphaBetaEngine(long timeBudgetMillis, int maxDepth) {
+        this(timeBudgetMillis, maxDepth, new TranspositionTable(TABLE_SIZE_BITS), true, null);
+    }
+
+    /**
+     * Creates an engine that searches for another engine, with a transposition table shared with other engines
+     * @param timeBudgetMillis Maximum time to spend on a move, in milliseconds
+     * @param maxDepth Search depth in plies, or 0 for the default for the board size
+     * @param table The shared transposition table
+     * @param stopSignal Checked with the deadline; the search stops once it returns true
+     */
+    AlphaBetaEngine(long timeBudgetMillis, int maxDepth, TranspositionTable table, BooleanSupplier stopSignal) {
+        this(timeBudgetMillis, maxDepth, table, false, stopSignal);
+    }
+
+    private AlphaBetaEngine(long timeBudgetMillis, int maxDepth, TranspositionTable table, boolean ownsTable,
+                            BooleanSupplier stopSignal) {
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.maxDepth = maxDepth;
+        this.table = table;
+        this.ownsTable = ownsTable;
+        this.stopSignal = stopSignal;
+    }
+
+    /**
+     * Choose a move for the given symbol
+     * If the time budget runs out, the best move among the fully searched ones is returned.
+     * @param board The current board (not modified)
+     * @param symbol The symbol of the player to move ('X' or 'O')
+     * @return The chosen move, or null if the board has no empty cell
+     */
+    @Override
+    public synchronized Move chooseMove(Board board, char symbol) {
+        Board work = new Board(board);
+        prepare(work);
+        int depth = maxDepth > 0 ? maxDepth : defaultDepth(size);
+        long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+
+        int cell = searchRoot(work, symbol == 'X' ? 0 : 1, depth, deadline);
+        if (cell < 0) {
+            return null;
+        }
+        return new Move(cell / size, cell % size, symbol);
+    }
+
+    /**
+     * Clear the transposition table, unless it is shared with other engines, and allow
+     * searches again after a cancel
+     */
+    @Override
+    public synchronized void newGame() {
+        if (ownsTable) {
+            table.clear();
+        }
+        cancelled = false;
+    }
+
+    /**
+     * Get the default search depth for a board size
+     * @param size Size of the board
+     * @return Depth in plies; 3x3 is searched to the end of the game
+     */
+    static int defaultDepth(int size) {
+        switch (size) {
+            case 3:
+                return 9;
+            case 4:
+                return 6;
+            case 5:
+                return 4;
+            default:
+                return 3;
+        }
+    }
+
+    /**
+     * Set up the move ordering and buffers for a board size and win length
+     * @param board The board about to be searched
+     */
+    void prepare(Board board) {
+        LineTable lines = board.getLines();
+        if (cellOrder != null && preparedLines == lines) {
+            return;
+        }
+
+        preparedLines = lines;
+        size = board.getSize();
+        int cellCount = board.getCellCount();
+        int winLength = lines.getWinLength();
+
+        // Cells on more lines (the center and diagonals) are tried first
+        Integer[] order = new Integer[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            order[cell] = cell;
+        }
+        Arrays.sort(order, (a, b) -> lines.getCellLines(b).length - lines.getCellLines(a).length);
+        cellOrder = new int[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            cellOrder[i] = order[i];
+        }
+
+        moveBuffers = new int[cellCount + 1][cellCount];
+
+        // A line with n stones of one player and none of the other is worth 10^(n-1)
+        lineWeights = new int[winLength + 1];
+        int weight = 1;
+        for (int n = 1; n <= winLength; n++) {
+            lineWeights[n] = weight;
+            weight = Math.min(weight * 10, 100_000);
+        }
+
+        // Entries from other rules are useless; a shared table is left to its owner
+        if (ownsTable) {
+            table.clear();
+        }
+    }
+
+    /**
+     * Search the root position to a fixed depth
+     * @param board Board to search (restored before returning)
+     * @param player 0 if 'X' is to move, 1 if 'O' is to move
+     * @param depth Search depth in plies
+     * @param deadline System.nanoTime() value at which the search is abandoned
+     * @return The best cell (row * size + column), or -1 if the board has no empty cell
+     */
+    int searchRoot(Board board, int player, int depth, long deadline) {
+        this.deadline = deadline;
+        this.aborted = cancelled;
+        this.nodes = 0;
+
+        int[] moves = moveBuffers[0];
+        int moveCount = generateMoves(board, moves, ttCell(board));
+        if (moveCount == 0) {
+            return -1;
+        }
+
+        char symbol = player == 0 ? 'X' : 'O';
+        int alpha = -INFINITY;
+        int bestScore = -INFINITY;
+        int bestCell = -1;
+        for (int i = 0; i < moveCount; i++) {
+            int cell = moves[i];
+            int score = scoreMove(board, cell, symbol, player, depth, 0, alpha, INFINITY);
+            if (aborted) {
+                break;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestCell = cell;
+            }
+            alpha = Math.max(alpha, score);
+        }
+
+        if (bestCell < 0) {
+            // Out of time before any move was searched; fall back to move ordering
+            bestCell = moves[0];
+            bestScore = 0;
+        } else if (!aborted) {
+            table.store(board, depth, TranspositionTable.EXACT, bestScore, bestCell);
+        }
+        lastScore = bestScore;
+        return bestCell;
+    }
+
+    /**
+     * Search a position below the root with a given window
+     * Used by the parallel engine to search subtrees sequentially.
+     * @param board Board to search (restored before returning)
+     * @param player 0 if 'X' is to move, 1 if 'O' is to move
+     * @param depth Remaining depth in plies
+     * @param ply Distance from the root, used to prefer faster wins
+     * @param alpha Lower bound of the window
+     * @param beta Upper bound of the window
+     * @param deadline System.nanoTime() value at which the search is abandoned
+     * @return The score for the player to move (meaningless if the search was aborted)
+     */
+    int searchNode(Board board, int player, int depth, int ply, int alpha, int beta, long deadline) {
+        prepare(board);
+        this.deadline = deadline;
+        this.aborted = cancelled;
+        this.nodes = 0;
+        return negamax(board, depth, ply, alpha, beta, player);
+    }
+
+    /**
+     * Play a move, score it for the mover and take it back
+     */
+    private int scoreMove(Board board, int cell, char symbol, int player,
+                          int depth, int ply, int alpha, int beta) {
+        int result = board.play(cell, symbol);
+        int score;
+        if (result == 1) {
+            score = WIN_SCORE - (ply + 1); // Faster wins score higher
+        } else if (result == 0 || board.isDeadDraw()) {
+            score = 0; // Nobody can win from here
+        } else {
+            score = -negamax(board, depth - 1, ply + 1, -beta, -alpha, 1 - player);
+        }
+        board.unplay(cell);
+        return score;
+    }
+
+    /**
+     * Negamax search with alpha-beta pruning
+     * @return The score of the position for the player to move
+     */
+    private int negamax(Board board, int depth, int ply, int alpha, int beta, int player) {
+        if ((++nodes & 1023) == 0 && (cancelled || System.nanoTime() > deadline
+                || (stopSignal != null && stopSignal.getAsBoolean()))) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        if (depth == 0) {
+            return evaluate(board, player);
+        }
+
+        // Use a stored result if it was searched at least as deep
+        int ttCell = -1;
+        long entry = table.probe(board);
+        if (entry != 0) {
+            ttCell = TranspositionTable.bestCellOf(entry);
+            if (TranspositionTable.depthOf(entry) >= depth) {
+                int score = fromTable(TranspositionTable.scoreOf(entry), ply);
+                int flag = TranspositionTable.flagOf(entry);
+                if (flag == TranspositionTable.EXACT) {
+                    return score;
+                } else if (flag == TranspositionTable.LOWER_BOUND) {
+                    alpha = Math.max(alpha, score);
+                } else {
+                    beta = Math.min(beta, score);
+                }
+                if (alpha >= beta) {
+                    return score;
+                }
+            }
+        }
+
+        int originalAlpha = alpha;
+        int[] moves = moveBuffers[ply];
+        int moveCount = generateMoves(board, moves, ttCell);
+        char symbol = player == 0 ? 'X' : 'O';
+        int bestScore = -INFINITY;
+        int bestCell = -1;
+        for (int i = 0; i < moveCount; i++) {
+            int cell = moves[i];
+            int score = scoreMove(board, cell, symbol, player, depth, ply, alpha, beta);
+            if (aborted) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestCell = cell;
+            }
+            if (bestScore > alpha) {
+                alpha = bestScore;
+            }
+            if (alpha >= beta) {
+                break; // Cutoff
+            }
+        }
+
+        int flag;
+        if (bestScore <= originalAlpha) {
+            flag = TranspositionTable.UPPER_BOUND;
+        } else if (bestScore >= beta) {
+            flag = TranspositionTable.LOWER_BOUND;
+        } else {
+            flag = TranspositionTable.EXACT;
+        }
+        table.store(board, depth, flag, toTable(bestScore, ply), bestCell);
+        return bestScore;
+    }
+
+    /**
+     * Fill a buffer with the empty cells, best candidates first
+     * @param board The board
+     * @param moves Buffer to fill
+     * @param firstCell Cell to try first (e.g. from the transposition table), or -1
+     * @return The number of moves written
+     */
+    int generateMoves(Board board, int[] moves, int firstCell) {
+        int count = 0;
+        if (firstCell >= 0 && firstCell < cellOrder.length
+                && board.isEmpty(firstCell)) {
+            moves[count++] = firstCell;
+        }
+        for (int cell : cellOrder) {
+            if (cell != firstCell && board.isEmpty(cell)) {
+                moves[count++] = cell;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the stored best move for a position
+     * @param board The board
+     * @return The stored best cell, or -1
+     */
+    private int ttCell(Board board) {
+        long entry = table.probe(board);
+        return entry != 0 ? TranspositionTable.bestCellOf(entry) : -1;
+    }
+
+    /**
+     * Score a position by the lines each player can still complete
+     * @param board The board
+     * @param player The player to move
+     * @return The score from the point of view of the player to move
+     */
+    private int evaluate(Board board, int player) {
+        int score = 0;
+        int lineCount = board.getLines().getLineCount();
+        for (int line = 0; line < lineCount; line++) {
+            int xCount = board.getLineCount(0, line);
+            int oCount = board.getLineCount(1, line);
+            if (oCount == 0) {
+                score += lineWeights[xCount];
+            } else if (xCount == 0) {
+                score -= lineWeights[oCount];
+            }
+        }
+        return player == 0 ? score : -score;
+    }
+
+    /**
+     * Convert a score to be stored in the table, making win scores relative to the node
+     */
+    static int toTable(int score, int ply) {
+        if (score > WIN_THRESHOLD) {
+            return score + ply;
+        }
+        if (score < -WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Convert a score read from the table back to be relative to the root
+     */
+    static int fromTable(int score, int ply) {
+        if (score > WIN_THRESHOLD) {
+            return score - ply;
+        }
+        if (score < -WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Stop the search in progress as soon as possible, and any later one until newGame
+     * The search returns its best move so far, as if it had reached its deadline.
+     */
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Check if the last search ran out of time or was cancelled
+     * @return true if the last search was abandoned before finishing
+     */
+    boolean wasAborted() {
+        return aborted;
+    }
+
+    /**
+     * Get the number of nodes visited by the last search
+     * @return The node count
+     */
+    long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the score of the move chosen by the last search
+     * @return Score for the player who moved; above WIN_THRESHOLD means a forced win
+     */
+    int getLastScore() {
+        return lastScore;
+    }
+}
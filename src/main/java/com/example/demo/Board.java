@@ -1,31 +1,126 @@
 package com.example.demo;
 
+import java.util.Arrays;
+
 /**
  * Board class represents the game board for Tic-Tac-Toe.
  * This class is part of the Model in the MVC pattern and contains no UI elements.
+ * A game is won by winLength symbols in a row (by default the full size of the board).
+ * The board keeps a stone count for each symbol on every window of winLength cells and a
+ * count of filled cells, so win and tie detection after a move only touch the windows
+ * through that move. It also counts each player's live windows (those without an opposing
+ * stone), so a game where neither player can still win can be ended early.
+ * A board can also be a cube of size layers (e.g. 4x4x4 Qubic). Its layers are stacked
+ * as extra rows, so cell index (layer * size + row) * size + column is still row * size + column
+ * with rows counted across layers; the line table knows the lines through every cell.
+ * Boards of up to 64 cells (8x8 or 4x4x4) additionally keep each player's stones in a bitmask,
+ * and detect a win by comparing it with the masks of the lines through the last move.
+ * A 64-bit Zobrist hash of the position is maintained alongside every move, together with
+ * the hashes of its 7 rotations and reflections so its canonical form is always known.
+ * Search code can use play/unplay, which take a cell index and allocate nothing.
  */
 public class Board {
-    private char[][] grid;
+    public static final int WIN = 1;
+    public static final int TIE = 0;
+    public static final int CONTINUE = -1;
+
+    // Symbols stored row by row; cell index = row * size + column
+    private final char[] cells;
     private final int size;
+    private final int winLength;
+    private final int layers;
+    private final LineTable lines;
+
+    // Stones of each player, one bit per cell, used for win detection when the size allows bitboards
+    private final boolean useBitboards;
+    private long xStones;
+    private long oStones;
+
+    // Stones per line for each symbol (index 0 for 'X', 1 for 'O') and the number of filled cells
+    private final int[][] lineCounts;
+    private int filledCells;
+
+    // Windows each player could still complete (no opposing stone on them)
+    private final int[] liveLines;
+
+    // Zobrist hash of the position under each symmetry (index 0 is the position itself)
+    private final BoardSymmetry symmetry;
+    private final long[] hashes;
+
+    // Number of changes so far, and the read-only snapshot of the latest version
+    private long version;
+    private volatile BoardSnapshot snapshot;
 
     /**
-     * Constructor for a new board
+     * Constructor for a new board where a full row, column or diagonal wins
      * @param size Size of the board (e.g., 3 for a 3x3 board)
      */
     public Board(int size) {
+        this(size, size);
+    }
+
+    /**
+     * Constructor for a new board with a custom win length
+     * @param size Size of the board (e.g., 15 for a 15x15 board)
+     * @param winLength Number of symbols in a row needed to win (1 to size)
+     */
+    public Board(int size, int winLength) {
+        this(size, winLength, 1);
+    }
+
+    /**
+     * Constructor for a new flat or cube board
+     * @param size Size of the board along each side
+     * @param winLength Number of symbols in a row needed to win (1 to size)
+     * @param layers 1 for a flat board, size for a cube
+     */
+    public Board(int size, int winLength, int layers) {
         this.size = size;
-        this.grid = new char[size][size];
+        this.winLength = winLength;
+        this.layers = layers;
+        this.cells = new char[layers * size * size];
+        this.lines = LineTable.forShape(size, winLength, layers);
+        this.useBitboards = lines.supportsBitboards();
+        this.lineCounts = new int[2][lines.getLineCount()];
+        this.liveLines = new int[] { lines.getLineCount(), lines.getLineCount() };
+        this.symmetry = BoardSymmetry.forShape(size, layers);
+        this.hashes = new long[BoardSymmetry.COUNT];
+    }
+
+    /**
+     * Copy constructor, used by search code that must not touch the live board
+     * @param other The board to copy
+     */
+    public Board(Board other) {
+        this.size = other.size;
+        this.winLength = other.winLength;
+        this.layers = other.layers;
+        this.cells = other.cells.clone();
+        this.lines = other.lines;
+        this.useBitboards = other.useBitboards;
+        this.xStones = other.xStones;
+        this.oStones = other.oStones;
+        this.lineCounts = new int[][] { other.lineCounts[0].clone(), other.lineCounts[1].clone() };
+        this.filledCells = other.filledCells;
+        this.liveLines = other.liveLines.clone();
+        this.symmetry = other.symmetry;
+        this.hashes = other.hashes.clone();
+        this.version = other.version;
     }
 
     /**
      * Initialize the board with empty cells
      */
     public void initializeBoard() {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                grid[i][j] = '-';
-            }
-        }
+        Arrays.fill(cells, '-');
+        xStones = 0L;
+        oStones = 0L;
+        Arrays.fill(lineCounts[0], 0);
+        Arrays.fill(lineCounts[1], 0);
+        filledCells = 0;
+        Arrays.fill(liveLines, lines.getLineCount());
+        Arrays.fill(hashes, 0L);
+        version++;
     }
 
     /**
@@ -34,24 +129,118 @@ public class Board {
      * @return 1 if the move results in a win, 0 if it results in a tie, -1 if the game continues
      */
     public int makeMove(Move move) {
-        int x = move.getX();
-        int y = move.getY();
-        char symbol = move.getSymbol();
+        return makeMove(move.getX(), move.getY(), move.getSymbol());
+    }
+
+    /**
+     * Make a packed move on the board (see Move.pack)
+     * @param packedMove The packed move, including its symbol
+     * @return 1 if the move results in a win, 0 if it results in a tie, -1 if the game continues
+     */
+    public int makeMove(int packedMove) {
+        return play(Move.packedX(packedMove) * size + Move.packedY(packedMove), Move.packedSymbol(packedMove));
+    }
+
+    /**
+     * Make a move on the board without requiring a Move object
+     * @param x Row index
+     * @param y Column index
+     * @param symbol Player's symbol ('X' or 'O')
+     * @return 1 if the move results in a win, 0 if it results in a tie, -1 if the game continues
+     */
+    public int makeMove(int x, int y, char symbol) {
+        return play(x * size + y, symbol);
+    }
+
+    /**
+     * Take back a move, restoring the line counts, bitmasks and hash
+     * @param x Row index of the move to take back
+     * @param y Column index of the move to take back
+     */
+    public void undoMove(int x, int y) {
+        unplay(x * size + y);
+    }
 
+    /**
+     * Place a symbol on a cell; the allocation-free primitive behind makeMove
+     * The cell must be empty; search code is expected to only play legal moves.
+     * @param cell Cell index (row * size + column)
+     * @param symbol Player's symbol ('X' or 'O')
+     * @return WIN, TIE or CONTINUE
+     */
+    public int play(int cell, char symbol) {
         // Place the symbol
-        grid[x][y] = symbol;
+        cells[cell] = symbol;
+        filledCells++;
+        version++;
+
+        int player = symbol == 'X' ? 0 : 1;
+        for (int t = 0; t < BoardSymmetry.COUNT; t++) {
+            hashes[t] ^= symmetry.key(t, cell, player);
+        }
+
+        // Only the windows through the placed cell can have been completed
+        // (and the first stone on a window takes it away from the opponent)
+        boolean won = false;
+        int[] counts = lineCounts[player];
+        for (int line : lines.getCellLines(cell)) {
+            if (counts[line] == 0) {
+                liveLines[1 - player]--;
+            }
+            if (++counts[line] == winLength && !useBitboards) {
+                won = true;
+            }
+        }
 
-        // Check for win
-        if (checkWin(x, y, symbol)) {
-            return 1; // Player won
+        // Small boards test the lines through the cell against the player's bitmask instead
+        if (useBitboards) {
+            long stones = player == 0 ? (xStones |= 1L << cell) : (oStones |= 1L << cell);
+            won = lines.hasLineThrough(stones, cell);
+        }
+        if (won) {
+            return WIN;
         }
 
         // Check for tie
         if (isBoardFull()) {
-            return 0; // Tie
+            return TIE;
         }
 
-        return -1; // Game continues
+        return CONTINUE;
+    }
+
+    /**
+     * Remove the symbol from a cell, restoring the line counts, bitmasks and hashes
+     * @param cell Cell index (row * size + column) of the move to take back
+     */
+    public void unplay(int cell) {
+        char symbol = cells[cell];
+        if (symbol == '-') {
+            return; // Nothing to undo
+        }
+
+        cells[cell] = '-';
+        filledCells--;
+        version++;
+
+        int player = symbol == 'X' ? 0 : 1;
+        if (useBitboards) {
+            if (player == 0) {
+                xStones &= ~(1L << cell);
+            } else {
+                oStones &= ~(1L << cell);
+            }
+        }
+        for (int t = 0; t < BoardSymmetry.COUNT; t++) {
+            hashes[t] ^= symmetry.key(t, cell, player);
+        }
+
+        int[] counts = lineCounts[player];
+        for (int line : lines.getCellLines(cell)) {
+            if (--counts[line] == 0) {
+                liveLines[1 - player]++;
+            }
+        }
     }
 
     /**
@@ -61,7 +250,25 @@ public class Board {
      * @return true if the cell is empty, false otherwise
      */
     public boolean isCellEmpty(int x, int y) {
-        return grid[x][y] == '-';
+        return cells[x * size + y] == '-';
+    }
+
+    /**
+     * Check if a cell is empty
+     * @param cell Cell index (row * size + column)
+     * @return true if the cell is empty, false otherwise
+     */
+    public boolean isEmpty(int cell) {
+        return cells[cell] == '-';
+    }
+
+    /**
+     * Get the symbol on a cell
+     * @param cell Cell index (row * size + column)
+     * @return 'X', 'O' or '-' for an empty cell
+     */
+    public char getCell(int cell) {
+        return cells[cell];
     }
 
     /**
@@ -69,84 +276,67 @@ public class Board {
      * @return true if the board is full, false otherwise
      */
     private boolean isBoardFull() {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (grid[i][j] == '-') {
-                    return false; // Found an empty cell
-                }
-            }
-        }
-        return true; // No empty cells
+        return filledCells == cells.length;
     }
 
     /**
-     * Check if the last move resulted in a win
-     * @param row Row of the last move
-     * @param col Column of the last move
-     * @param symbol Symbol placed in the last move
-     * @return true if the move resulted in a win, false otherwise
+     * Check if neither player can complete a line any more
+     * The game is then certain to end in a tie, although play/makeMove only report
+     * TIE once the board is full.
+     * @return true if every line holds stones of both players
      */
-    private boolean checkWin(int row, int col, char symbol) {
-        // Check row
-        boolean rowWin = true;
-        for (int j = 0; j < size; j++) {
-            if (grid[row][j] != symbol) {
-                rowWin = false;
-                break;
-            }
-        }
-        if (rowWin) return true;
-
-        // Check column
-        boolean colWin = true;
-        for (int i = 0; i < size; i++) {
-            if (grid[i][col] != symbol) {
-                colWin = false;
-                break;
-            }
-        }
-        if (colWin) return true;
-
-        // Check main diagonal (only if the move is on the diagonal)
-        if (row == col) {
-            boolean diagWin = true;
-            for (int i = 0; i < size; i++) {
-                if (grid[i][i] != symbol) {
-                    diagWin = false;
-                    break;
-                }
-            }
-            if (diagWin) return true;
-        }
-
-        // Check secondary diagonal (only if the move is on the secondary diagonal)
-        if (row + col == size - 1) {
-            boolean antiDiagWin = true;
-            for (int i = 0; i < size; i++) {
-                if (grid[i][size - 1 - i] != symbol) {
-                    antiDiagWin = false;
-                    break;
-                }
-            }
-            if (antiDiagWin) return true;
-        }
+    public boolean isDeadDraw() {
+        return liveLines[0] == 0 && liveLines[1] == 0;
+    }
 
-        return false; // No win
+    /**
+     * Get the number of lines a player could still complete
+     * @param player 0 for 'X', 1 for 'O'
+     * @return The number of lines without an opposing stone
+     */
+    public int getLiveLines(int player) {
+        return liveLines[player];
     }
 
     /**
      * Get the current state of the grid
-     * @return A copy of the grid
+     * @return A copy of the grid, with the layers of a cube stacked as extra rows
      */
     public char[][] getGrid() {
         // Return a copy to maintain encapsulation
-        char[][] copy = new char[size][size];
-        for (int i = 0; i < size; i++) {
-            System.arraycopy(grid[i], 0, copy[i], 0, size);
+        int rows = getRows();
+        char[][] copy = new char[rows][size];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(cells, i * size, copy[i], 0, size);
         }
         return copy;
     }
 
+    /**
+     * Get a read-only snapshot of the current position
+     * The snapshot is copied at most once per change and then shared, so repeated
+     * calls between moves allocate nothing. Call this from the thread that changes
+     * the board (or while holding the lock that guards it); the snapshot itself can
+     * then be read from any thread.
+     * @return An immutable snapshot of the board
+     */
+    public BoardSnapshot snapshot() {
+        BoardSnapshot current = snapshot;
+        if (current == null || current.getVersion() != version) {
+            current = new BoardSnapshot(size, version, cells.clone());
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * Get the number of changes made to the board so far
+     * @return The board version
+     */
+    public long getVersion() {
+        return version;
+    }
+
     /**
      * Get the size of the board
      * @return The size of the board
@@ -154,4 +344,126 @@ public class Board {
     public int getSize() {
         return size;
     }
+
+    /**
+     * Get the number of layers
+     * @return 1 for a flat board, the size for a cube
+     */
+    public int getLayers() {
+        return layers;
+    }
+
+    /**
+     * Get the number of rows, counted across all layers
+     * @return layers * size
+     */
+    public int getRows() {
+        return layers * size;
+    }
+
+    /**
+     * Get the number of cells
+     * @return layers * size * size
+     */
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    /**
+     * Get the number of symbols in a row needed to win
+     * @return The win length
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Get the number of stones a symbol has on a line
+     * @param player 0 for 'X', 1 for 'O'
+     * @param line Line index from the board's line table
+     * @return The number of stones on the line
+     */
+    public int getLineCount(int player, int line) {
+        return lineCounts[player][line];
+    }
+
+    /**
+     * Get the number of occupied cells
+     * @return The number of symbols on the board
+     */
+    public int getFilledCells() {
+        return filledCells;
+    }
+
+    /**
+     * Get the Zobrist hash of the current position
+     * @return 64-bit hash, equal for equal positions of the same size
+     */
+    public long getHash() {
+        return hashes[BoardSymmetry.IDENTITY];
+    }
+
+    /**
+     * Get the hash of the position as seen through a symmetry
+     * @param transform Symmetry index from BoardSymmetry
+     * @return Zobrist hash of the transformed position
+     */
+    public long getSymmetryHash(int transform) {
+        return hashes[transform];
+    }
+
+    /**
+     * Get the symmetry that maps this position to its canonical form
+     * The canonical form is the variant with the smallest hash; ties go to the lowest index.
+     * @return Symmetry index from BoardSymmetry
+     */
+    public int getCanonicalTransform() {
+        int best = 0;
+        for (int t = 1; t < BoardSymmetry.COUNT; t++) {
+            if (hashes[t] < hashes[best]) {
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the hash of the canonical form, equal for all 8 symmetric variants of a position
+     * @return The smallest of the 8 symmetry hashes
+     */
+    public long getCanonicalHash() {
+        return hashes[getCanonicalTransform()];
+    }
+
+    /**
+     * Get the precomputed winning lines for this board's size and win length
+     * @return The line table
+     */
+    public LineTable getLines() {
+        return lines;
+    }
+
+    /**
+     * Get the symmetries of this board's shape
+     * @return The symmetry tables
+     */
+    public BoardSymmetry getSymmetry() {
+        return symmetry;
+    }
+
+    /**
+     * Get the bitmask of cells holding 'X' (only maintained for boards of up to 64 cells)
+     * @return Bitmask with bit (row * size + col) set for each 'X'
+     */
+    public long getXStones() {
+        return xStones;
+    }
+
+    /**
+     * Get the bitmask of cells holding 'O' (only maintained for boards of up to 64 cells)
+     * @return Bitmask with bit (row * size + col) set for each 'O'
+     */
+    public long getOStones() {
+        return oStones;
+    }
 }
\ No newline at end of file
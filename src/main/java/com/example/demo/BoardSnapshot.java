@@ -0,0 +1,62 @@
+package com.example.demo;
+
+/**
+ * Immutable, read-only view of a board at one point in time.
+ * A Board hands out the same snapshot to every reader until its next move, so
+ * views can poll the board as often as they like without copying it, and can read
+ * a snapshot from any thread while the game keeps changing the board.
+ */
+public final class BoardSnapshot {
+    private final int size;
+    private final long version;
+    private final char[] cells;
+
+    /**
+     * Constructor for a snapshot; only Board creates these
+     * @param size Size of the board
+     * @param version Board version the snapshot was taken at
+     * @param cells Copy of the board's cells, owned by the snapshot
+     */
+    BoardSnapshot(int size, long version, char[] cells) {
+        this.size = size;
+        this.version = version;
+        this.cells = cells;
+    }
+
+    /**
+     * Get the symbol on a cell
+     * @param row Row index
+     * @param col Column index
+     * @return 'X', 'O' or '-' for an empty cell
+     */
+    public char getCell(int row, int col) {
+        return cells[row * size + col];
+    }
+
+    /**
+     * Get the symbol on a cell
+     * @param cell Cell index (row * size + column)
+     * @return 'X', 'O' or '-' for an empty cell
+     */
+    public char getCell(int cell) {
+        return cells[cell];
+    }
+
+    /**
+     * Get the size of the board
+     * @return The size of the board
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the board version this snapshot shows
+     * The version increases with every change, so two snapshots with the same
+     * version show the same position.
+     * @return The board version
+     */
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.demo;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BoardSymmetry describes the 8 symmetries of a square board (the D4 group):
+ * the identity, three rotations and four reflections. On a cube they are applied to
+ * every layer alike, which keeps lines through the layers intact.
+ * Every symmetry is stored as a cell permutation, together with the Zobrist keys of each
+ * cell as seen through it. This lets Board keep the hash of all 8 transformed positions
+ * up to date with a few XORs per move, so the canonical form of a position (the transform
+ * with the smallest hash) is found without touching the grid.
+ */
+public final class BoardSymmetry {
+    /**
+     * Number of symmetries of a square board
+     */
+    public static final int COUNT = 8;
+
+    public static final int IDENTITY = 0;
+    public static final int ROTATE_90 = 1;
+    public static final int ROTATE_180 = 2;
+    public static final int ROTATE_270 = 3;
+    public static final int MIRROR_COLUMNS = 4;
+    public static final int MIRROR_ROWS = 5;
+    public static final int TRANSPOSE = 6;
+    public static final int ANTI_TRANSPOSE = 7;
+
+    private static final int[] INVERSE = {
+            IDENTITY, ROTATE_270, ROTATE_180, ROTATE_90, MIRROR_COLUMNS, MIRROR_ROWS, TRANSPOSE, ANTI_TRANSPOSE
+    };
+
+    private static final Map<Integer, BoardSymmetry> CACHE = new ConcurrentHashMap<>();
+
+    private final int size;
+    private final int layers;
+    private final int[][] cellMaps;
+    private final long[][] keys;
+
+    /**
+     * Get the shared symmetry tables for a board size
+     * @param size Size of the board (e.g., 3 for a 3x3 board)
+     * @return The symmetry tables for that size
+     */
+    public static BoardSymmetry forSize(int size) {
+        return forShape(size, 1);
+    }
+
+    /**
+     * Get the shared symmetry tables for a board of stacked square layers
+     * @param size Size of each layer
+     * @param layers Number of layers (1 for a flat board, size for a cube)
+     * @return The symmetry tables for that shape
+     */
+    public static BoardSymmetry forShape(int size, int layers) {
+        return CACHE.computeIfAbsent(size << 16 | layers, key -> new BoardSymmetry(size, layers));
+    }
+
+    /**
+     * Builds the cell permutations and transformed Zobrist keys
+     * @param size Size of each layer
+     * @param layers Number of layers
+     */
+    private BoardSymmetry(int size, int layers) {
+        this.size = size;
+        this.layers = layers;
+        int layerCells = size * size;
+        int cellCount = layers * layerCells;
+        int last = size - 1;
+        ZobristKeys zobrist = ZobristKeys.forShape(size, layers);
+
+        this.cellMaps = new int[COUNT][cellCount];
+        this.keys = new long[COUNT][cellCount * 2];
+        for (int layer = 0; layer < layers; layer++) {
+            int base = layer * layerCells;
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int cell = base + row * size + col;
+                    cellMaps[IDENTITY][cell] = cell;
+                    cellMaps[ROTATE_90][cell] = base + col * size + (last - row);
+                    cellMaps[ROTATE_180][cell] = base + (last - row) * size + (last - col);
+                    cellMaps[ROTATE_270][cell] = base + (last - col) * size + row;
+                    cellMaps[MIRROR_COLUMNS][cell] = base + row * size + (last - col);
+                    cellMaps[MIRROR_ROWS][cell] = base + (last - row) * size + col;
+                    cellMaps[TRANSPOSE][cell] = base + col * size + row;
+                    cellMaps[ANTI_TRANSPOSE][cell] = base + (last - col) * size + (last - row);
+                }
+            }
+        }
+        for (int t = 0; t < COUNT; t++) {
+            for (int cell = 0; cell < cellCount; cell++) {
+                keys[t][cell * 2] = zobrist.get(cellMaps[t][cell], 0);
+                keys[t][cell * 2 + 1] = zobrist.get(cellMaps[t][cell], 1);
+            }
+        }
+    }
+
+    /**
+     * Map a cell through a symmetry
+     * @param transform Symmetry index (0 to 7)
+     * @param cell Cell index (row * size + column)
+     * @return The cell it lands on
+     */
+    public int transformCell(int transform, int cell) {
+        return cellMaps[transform][cell];
+    }
+
+    /**
+     * Get the symmetry that undoes another
+     * @param transform Symmetry index (0 to 7)
+     * @return The inverse symmetry index
+     */
+    public static int inverse(int transform) {
+        return INVERSE[transform];
+    }
+
+    /**
+     * Get the Zobrist key of a symbol on a cell, as seen through a symmetry
+     * @param transform Symmetry index (0 to 7)
+     * @param cell Cell index (row * size + column)
+     * @param player 0 for 'X', 1 for 'O'
+     * @return The key of the transformed cell
+     */
+    long key(int transform, int cell, int player) {
+        return keys[transform][(cell << 1) | player];
+    }
+
+    /**
+     * Build the canonical form of a position
+     * The canonical board is the one reached by board.getCanonicalTransform(); all 8
+     * symmetric variants of a position share it. The original board is not modified.
+     * @param board The board to canonicalize
+     * @return A new board holding the canonical position
+     */
+    public static Board canonicalBoard(Board board) {
+        BoardSymmetry symmetry = board.getSymmetry();
+        int transform = board.getCanonicalTransform();
+
+        Board canonical = new Board(board.getSize(), board.getWinLength(), board.getLayers());
+        canonical.initializeBoard();
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            char symbol = board.getCell(cell);
+            if (symbol != '-') {
+                canonical.play(symmetry.transformCell(transform, cell), symbol);
+            }
+        }
+        return canonical;
+    }
+
+    /**
+     * Get the size of the board these symmetries apply to
+     * @return The board size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of layers of the board these symmetries apply to
+     * @return 1 for a flat board, the size for a cube
+     */
+    public int getLayers() {
+        return layers;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo;
+
+/**
+ * Interface for a connected client as seen by the GameServer, whatever the transport
+ * behind it (a thread per socket in ClientHandler, or an NIO event loop).
+ * Implementations must allow send to be called from any thread.
+ */
+public interface ClientConnection {
+    /**
+     * Sends a message to the client, as a text line or a WireProtocol frame depending on the mode
+     * Messages are given by their fields, so a frame is encoded without formatting a line first.
+     * @param opcode The server opcode of WireProtocol (REGISTERED to ERROR)
+     * @param first The game ID of MATCHED, the row of MOVED and HINTED, or the result of GAME_OVER
+     * @param second The column of MOVED and HINTED
+     * @param symbol The symbol of MATCHED and MOVED
+     * @param text The text of REGISTERED, WAITING, MATCHED and ERROR, or the winner of GAME_OVER
+     */
+    void send(int opcode, int first, int second, char symbol, String text);
+
+    /**
+     * Sends a message without fields, such as YOUR_TURN
+     * @param opcode The server opcode of WireProtocol
+     */
+    default void send(int opcode) {
+        send(opcode, 0, 0, (char) 0, null);
+    }
+
+    /**
+     * Sends a message with a text field, such as ERROR
+     * @param opcode The server opcode of WireProtocol
+     * @param text The text
+     */
+    default void send(int opcode, String text) {
+        send(opcode, 0, 0, (char) 0, text);
+    }
+
+    /**
+     * Switches the connection to the binary frames of WireProtocol: frames are expected from
+     * the client from now on, and every message after the acknowledgement is sent as a frame.
+     * Called while processing the client's registration, before the client can send a frame.
+     * @param playerName Name acknowledged in the last text line, REGISTERED:name:BIN
+     */
+    void startBinaryFrames(String playerName);
+
+    /**
+     * Closes the connection and notifies the server
+     */
+    void close();
+
+    /**
+     * Returns the client's address
+     * @return The remote host address
+     */
+    String getClientAddress();
+}
@@ -1,20 +1,55 @@
 package com.example.demo;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Handles communication with a client
+ * Handles communication with a client on its own thread, blocking on the socket.
+ * The client speaks text lines, or the binary frames of WireProtocol once it asked for them
+ * at registration.
+ *
+ * Messages are queued by the threads that send them, such as game actors, and written by a
+ * writer thread of the connection, so a client that stops reading blocks only its own writer.
+ * A client is closed once more than MAX_QUEUED_BYTES are waiting for it.
  */
-public class ClientHandler implements Runnable {
+public class ClientHandler implements Runnable, ClientConnection {
     private Socket clientSocket;
     private GameServer gameServer;
-    private BufferedReader in;
-    private PrintWriter out;
-    private boolean running = true;
+    private InputStream in;
+    private OutputStream output;
+    private volatile boolean running = true;
+
+    /**
+     * Most bytes queued for a client and not yet written; a client exceeding it is closed
+     */
+    public static final int MAX_QUEUED_BYTES = NioServerTransport.MAX_QUEUED_BYTES;
+
+    // Queued after the last message, to stop the writer
+    private static final byte[] END_OF_OUTPUT = new byte[0];
+
+    // Decodes the text lines, at most CommandParser.MAX_LINE_LENGTH bytes each
+    private final CommandParser parser = new CommandParser();
+
+    // Set once the client registered for binary frames
+    private volatile boolean binaryIn;
+    private volatile boolean binaryOut;
+
+    // Encoded messages waiting for the writer, and their total size
+    private final BlockingQueue<byte[]> outbox = new LinkedBlockingQueue<>();
+    private final AtomicInteger queuedBytes = new AtomicInteger();
+
+    // Messages may be sent from any thread; held while a message is encoded and queued, and
+    // while switching to frames, so no message is queued in the old mode after the switch
+    private final ReentrantLock writeLock = new ReentrantLock();
 
     /**
      * Creates a new client handler
@@ -26,9 +61,9 @@ public class ClientHandler implements Runnable {
         this.gameServer = gameServer;
 
         try {
-            // Set up input/output streams
-            this.in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-            this.out = new PrintWriter(clientSocket.getOutputStream(), true);
+            // Set up input/output streams; lines are read byte by byte so frames can follow them
+            this.in = new BufferedInputStream(clientSocket.getInputStream());
+            this.output = clientSocket.getOutputStream();
         } catch (IOException e) {
             System.err.println("Error setting up client handler: " + e.getMessage());
             close();
@@ -40,10 +75,27 @@ public class ClientHandler implements Runnable {
      */
     @Override
     public void run() {
+        // The writer runs on the same kind of thread as the reader, virtual or not
+        Thread.Builder writer = Thread.currentThread().isVirtual() ? Thread.ofVirtual() : Thread.ofPlatform();
+        writer.name("client-writer").start(this::writeMessages);
         try {
-            String inputLine;
-            while (running && (inputLine = in.readLine()) != null) {
-                processMessage(inputLine);
+            byte[] frame = null;
+            while (running) {
+                if (binaryIn) {
+                    if (frame == null) {
+                        frame = new byte[WireProtocol.MAX_FRAME_LENGTH];
+                    }
+                    int length = WireProtocol.readFrame(in, frame);
+                    if (length < 0) {
+                        break;
+                    }
+                    gameServer.processFrame(this, ByteBuffer.wrap(frame, 0, length));
+                } else {
+                    if (!parser.readLine(in)) {
+                        break;
+                    }
+                    gameServer.processLine(this, parser);
+                }
             }
         } catch (IOException e) {
             System.err.println("Error reading from client: " + e.getMessage());
@@ -53,76 +105,101 @@ public class ClientHandler implements Runnable {
     }
 
     /**
-     * Processes a message from the client
-     * @param message The message to process
+     * Sends a message to the client, as a text line or a frame depending on the mode
+     * @param opcode The server opcode of WireProtocol
+     * @param first The first number field
+     * @param second The second number field
+     * @param symbol The symbol field
+     * @param text The text field
      */
-    private void processMessage(String message) {
-        System.out.println("Received message: " + message);
-
-        // Split the message into parts
-        String[] parts = message.split(":");
-        String command = parts[0];
-
+    @Override
+    public void send(int opcode, int first, int second, char symbol, String text) {
+        writeLock.lock();
         try {
-            switch (command) {
-                case "REGISTER":
-                    // Format: REGISTER:playerName:boardSize
-                    if (parts.length >= 3) {
-                        String playerName = parts[1];
-                        int boardSize = Integer.parseInt(parts[2]);
-                        gameServer.registerPlayer(this, playerName, boardSize);
-                    }
-                    break;
-
-                case "MOVE":
-                    // Format: MOVE:gameId:row:col
-                    if (parts.length >= 4) {
-                        int gameId = Integer.parseInt(parts[1]);
-                        int row = Integer.parseInt(parts[2]);
-                        int col = Integer.parseInt(parts[3]);
-                        gameServer.processMove(this, gameId, row, col);
-                    }
-                    break;
+            if (!running || clientSocket.isClosed()) {
+                return;
+            }
+            byte[] bytes = binaryOut
+                    ? WireProtocol.encodeServerMessage(opcode, first, second, symbol, text)
+                    : WireProtocol.formatServerMessage(opcode, first, second, symbol, text);
+            if (queuedBytes.addAndGet(bytes.length) > MAX_QUEUED_BYTES) {
+                queuedBytes.addAndGet(-bytes.length);
+                System.err.println("Client " + getClientAddress() + " is not reading its messages, closing connection");
+                closeSocket(); // The reading thread then closes the handler
+                return;
+            }
+            outbox.add(bytes);
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
-                case "DISCONNECT":
-                    close();
+    /**
+     * Writes queued messages until the connection closes (writer thread)
+     * Messages queued together are written together, and flushed once the queue is empty.
+     */
+    private void writeMessages() {
+        try (OutputStream out = new BufferedOutputStream(output)) {
+            while (true) {
+                byte[] bytes = outbox.take();
+                if (bytes == END_OF_OUTPUT) {
                     break;
-
-                default:
-                    System.out.println("Unknown command: " + command);
+                }
+                queuedBytes.addAndGet(-bytes.length);
+                out.write(bytes);
+                if (outbox.isEmpty()) {
+                    out.flush();
+                }
             }
-        } catch (Exception e) {
-            System.err.println("Error processing message: " + e.getMessage());
-            sendMessage("ERROR:Invalid message format");
+        } catch (IOException e) {
+            if (running && !clientSocket.isClosed()) {
+                System.err.println("Error writing to client: " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Sends a message to the client
-     * @param message The message to send
+     * Switches to binary frames; the reading thread is the one processing the registration,
+     * so the next read already expects a frame. The acknowledgement is queued and the output
+     * switched while holding the write lock, so a message sent meanwhile by a game cannot
+     * come between them as a text line.
+     * @param playerName Name acknowledged in the last text line
      */
-    public void sendMessage(String message) {
-        if (out != null && !clientSocket.isClosed()) {
-            out.println(message);
+    @Override
+    public void startBinaryFrames(String playerName) {
+        binaryIn = true;
+        writeLock.lock();
+        try {
+            send(WireProtocol.REGISTERED, playerName + ":" + WireProtocol.OPTION);
+            binaryOut = true;
+        } finally {
+            writeLock.unlock();
         }
     }
 
     /**
      * Closes the connection
      */
+    @Override
     public void close() {
         running = false;
+        outbox.add(END_OF_OUTPUT);
+        closeSocket();
+
+        // Notify the server
+        gameServer.disconnectClient(this);
+    }
 
+    /**
+     * Closes the socket, which stops both the reading and the writing thread
+     */
+    private void closeSocket() {
         try {
-            if (in != null) in.close();
-            if (out != null) out.close();
             if (clientSocket != null && !clientSocket.isClosed()) {
                 clientSocket.close();
             }
-
-            // Notify the server
-            gameServer.disconnectClient(this);
-
         } catch (IOException e) {
             System.err.println("Error closing client handler: " + e.getMessage());
         }
@@ -131,7 +208,8 @@ public class ClientHandler implements Runnable {
     /**
      * Returns the client's address
      */
+    @Override
     public String getClientAddress() {
         return clientSocket.getInetAddress().getHostAddress();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,266 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CommandParser decodes lines of the text protocol in place, without splitting them into strings.
+ *
+ * A line is read into a fixed buffer of MAX_LINE_LENGTH bytes, so a client cannot make the
+ * reader hold more than that; a longer line is an error and the connection is closed. The
+ * colon-separated fields are recorded as offsets into the buffer, numbers are parsed straight
+ * from the bytes with a range check, and the command is mapped to its WireProtocol opcode, so
+ * text lines and binary frames are dispatched alike. Only text fields that are kept, such as a
+ * player's name, become strings.
+ *
+ * One parser serves one connection and is reused for every line; it is not thread-safe.
+ */
+public final class CommandParser {
+    /**
+     * Longest line accepted, without its terminator (\n or \r\n)
+     */
+    public static final int MAX_LINE_LENGTH = 512;
+
+    /**
+     * Value returned by number for a missing, malformed or out-of-range field
+     */
+    public static final int INVALID = -1;
+
+    private static final int MAX_FIELDS = 16;
+
+    // Commands sent by clients, and by the server, with their opcodes
+    private static final byte[][] CLIENT_COMMANDS = names("REGISTER", "MOVE", "HINT", "DISCONNECT");
+    private static final int[] CLIENT_OPCODES = {
+            WireProtocol.REGISTER, WireProtocol.MOVE, WireProtocol.HINT, WireProtocol.DISCONNECT
+    };
+    private static final byte[][] SERVER_COMMANDS = names("REGISTERED", "WAITING", "MATCHED", "MOVE", "HINT",
+            "YOUR_TURN", "OPPONENT_TURN", "GAME_OVER", "OPPONENT_DISCONNECTED", "ERROR");
+    private static final int[] SERVER_OPCODES = {
+            WireProtocol.REGISTERED, WireProtocol.WAITING, WireProtocol.MATCHED, WireProtocol.MOVED,
+            WireProtocol.HINTED, WireProtocol.YOUR_TURN, WireProtocol.OPPONENT_TURN, WireProtocol.GAME_OVER,
+            WireProtocol.OPPONENT_DISCONNECTED, WireProtocol.ERROR
+    };
+
+    // One byte more than a line, for the '\r' of a \r\n terminator
+    private final byte[] line = new byte[MAX_LINE_LENGTH + 1];
+    private int length;
+    private final int[] fieldStarts = new int[MAX_FIELDS];
+    private final int[] fieldEnds = new int[MAX_FIELDS];
+    private int fieldCount;
+
+    /**
+     * Read the next line from a stream, byte by byte so that frames following it stay in the stream
+     * @param in The stream to read from
+     * @return true if a line was read, false at the end of the stream
+     * @throws IOException If the stream fails or the line is longer than MAX_LINE_LENGTH
+     */
+    public boolean readLine(InputStream in) throws IOException {
+        length = 0;
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                if (length == 0) {
+                    return false;
+                }
+                break;
+            }
+            if (length == line.length) {
+                throw new IOException("Line longer than " + MAX_LINE_LENGTH + " bytes");
+            }
+            line[length++] = (byte) b;
+        }
+        if (!endLine()) {
+            throw new IOException("Line longer than " + MAX_LINE_LENGTH + " bytes");
+        }
+        split();
+        return true;
+    }
+
+    /**
+     * Load a line that was read elsewhere, such as by an NIO event loop
+     * @param bytes The bytes of the line, without its terminator
+     * @param from Offset of the first byte
+     * @param count Number of bytes (at most MAX_LINE_LENGTH, not counting a final '\r')
+     */
+    public void load(byte[] bytes, int from, int count) {
+        if (count > line.length) {
+            throw new IllegalArgumentException("Line longer than " + MAX_LINE_LENGTH + " bytes");
+        }
+        System.arraycopy(bytes, from, line, 0, count);
+        length = count;
+        if (!endLine()) {
+            throw new IllegalArgumentException("Line longer than " + MAX_LINE_LENGTH + " bytes");
+        }
+        split();
+    }
+
+    /**
+     * Load a line given as a string
+     * @param message The line, without its terminator
+     */
+    public void load(String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        load(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Drop the '\r' of a \r\n terminator, which does not count toward the line length
+     * @return false if the line is longer than MAX_LINE_LENGTH without it
+     */
+    private boolean endLine() {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return length <= MAX_LINE_LENGTH;
+    }
+
+    /**
+     * Record where the fields of the current line start and end
+     */
+    private void split() {
+        fieldCount = 0;
+        int start = 0;
+        for (int i = 0; i < length && fieldCount < MAX_FIELDS - 1; i++) {
+            if (line[i] == ':') {
+                fieldStarts[fieldCount] = start;
+                fieldEnds[fieldCount++] = i;
+                start = i + 1;
+            }
+        }
+        // The last field takes the rest of the line, colons included
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount++] = length;
+    }
+
+    /**
+     * Get the opcode of a command sent by a client
+     * @return The WireProtocol opcode, or INVALID for an unknown command
+     */
+    public int clientCommand() {
+        return lookup(CLIENT_COMMANDS, CLIENT_OPCODES);
+    }
+
+    /**
+     * Get the opcode of a message sent by the server
+     * @return The WireProtocol opcode (MOVED for MOVE, HINTED for HINT), or INVALID for an unknown message
+     */
+    public int serverCommand() {
+        return lookup(SERVER_COMMANDS, SERVER_OPCODES);
+    }
+
+    private int lookup(byte[][] names, int[] opcodes) {
+        for (int i = 0; i < names.length; i++) {
+            if (is(0, names[i])) {
+                return opcodes[i];
+            }
+        }
+        return INVALID;
+    }
+
+    /**
+     * Get the number of fields of the current line, the command included
+     * @return The field count
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Check if a field holds the given ASCII text
+     * @param field Field index (0 is the command)
+     * @param text The bytes to compare with
+     * @return true if the field exists and matches
+     */
+    public boolean is(int field, byte[] text) {
+        if (field >= fieldCount || fieldEnds[field] - fieldStarts[field] != text.length) {
+            return false;
+        }
+        int start = fieldStarts[field];
+        for (int i = 0; i < text.length; i++) {
+            if (line[start + i] != text[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse a field as a decimal number
+     * @param field Field index
+     * @param max Largest value accepted
+     * @return The number, or INVALID if the field is missing, empty, not made of digits or above max
+     */
+    public int number(int field, int max) {
+        if (field >= fieldCount) {
+            return INVALID;
+        }
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (start == end || end - start > 10) {
+            return INVALID;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+        }
+        return value > max ? INVALID : (int) value;
+    }
+
+    /**
+     * Get the first character of a field, such as a symbol
+     * @param field Field index
+     * @return The character, or 0 if the field is missing or empty
+     */
+    public char symbol(int field) {
+        if (field >= fieldCount || fieldStarts[field] == fieldEnds[field]) {
+            return 0;
+        }
+        return (char) (line[fieldStarts[field]] & 0xFF);
+    }
+
+    /**
+     * Get a field as a string
+     * @param field Field index
+     * @return The text of the field, or an empty string if it is missing
+     */
+    public String text(int field) {
+        if (field >= fieldCount) {
+            return "";
+        }
+        return new String(line, fieldStarts[field], fieldEnds[field] - fieldStarts[field], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the rest of the line from a field on, colons included (e.g. a message meant for display)
+     * @param field Field index
+     * @return The text from the start of the field to the end of the line, or an empty string
+     */
+    public String rest(int field) {
+        if (field >= fieldCount) {
+            return "";
+        }
+        return new String(line, fieldStarts[field], length - fieldStarts[field], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the current line as a string, for logging
+     * @return The line
+     */
+    @Override
+    public String toString() {
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static byte[][] names(String... commands) {
+        byte[][] names = new byte[commands.length][];
+        for (int i = 0; i < commands.length; i++) {
+            names[i] = commands[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+}
@@ -11,18 +11,43 @@ public class Game {
     private int currentPlayerIndex; // 0 for player1, 1 for player2
     private GameState state;
     private Player winner;
-    private Move lastMove;
+    private int lastMove = Move.NONE; // Packed, see Move.pack
+    private final GameRecord record;
 
     /**
-     * Constructor for a new game
+     * Constructor for a new game where a full row, column or diagonal wins
      * @param player1 First player (typically uses 'X')
      * @param player2 Second player (typically uses 'O')
      * @param boardSize Size of the game board (e.g., 3 for a 3x3 board)
      */
     public Game(Player player1, Player player2, int boardSize) {
+        this(player1, player2, boardSize, boardSize);
+    }
+
+    /**
+     * Constructor for a new game with a custom win length
+     * @param player1 First player (typically uses 'X')
+     * @param player2 Second player (typically uses 'O')
+     * @param boardSize Size of the game board (e.g., 15 for a 15x15 board)
+     * @param winLength Number of symbols in a row needed to win (1 to boardSize)
+     */
+    public Game(Player player1, Player player2, int boardSize, int winLength) {
+        this(player1, player2, boardSize, winLength, 1);
+    }
+
+    /**
+     * Constructor for a new game on a flat board or a cube
+     * @param player1 First player (typically uses 'X')
+     * @param player2 Second player (typically uses 'O')
+     * @param boardSize Size of the game board along each side (e.g., 4 for 4x4x4 Qubic)
+     * @param winLength Number of symbols in a row needed to win (1 to boardSize)
+     * @param layers 1 for a flat board, boardSize for a cube (rows of a cube count across layers)
+     */
+    public Game(Player player1, Player player2, int boardSize, int winLength, int layers) {
         this.player1 = player1;
         this.player2 = player2;
-        this.gameBoard = new Board(boardSize);
+        this.gameBoard = new Board(boardSize, winLength, layers);
+        this.record = new GameRecord(boardSize, winLength, layers, player1.getName(), player2.getName());
         this.currentPlayerIndex = 0; // player1 starts
         this.state = GameState.WAITING_TO_START;
     }
@@ -39,36 +64,59 @@ public class Game {
 
     /**
      * Processes a move from the current player
-     * @param move The move to be made
+     * @param move The move to be made; its symbol is set to the current player's
      * @return true if the move was valid and processed, false otherwise
      */
     public boolean makeMove(Move move) {
+        if (!isOnBoard(move.getX(), move.getY())
+                || !makeMove(Move.pack(move.getX(), move.getY(), move.getSymbol()))) {
+            return false;
+        }
+        move.setSymbol(Move.packedSymbol(lastMove));
+        return true;
+    }
+
+    /**
+     * Processes a packed move (see Move.pack) from the current player without allocating
+     * @param packedMove The packed move; its symbol is replaced by the current player's
+     * @return true if the move was valid and processed, false otherwise
+     */
+    public boolean makeMove(int packedMove) {
         // Validate the move
         if (this.state != GameState.IN_PROGRESS) {
             return false;
         }
 
+        int x = Move.packedX(packedMove);
+        int y = Move.packedY(packedMove);
+        if (!isOnBoard(x, y)) {
+            return false;
+        }
+
         // Check if the cell is already taken
-        if (!gameBoard.isCellEmpty(move.getX(), move.getY())) {
+        if (!gameBoard.isCellEmpty(x, y)) {
             return false;
         }
 
         // Set the current player's symbol for this move
         Player currentPlayer = getCurrentPlayer();
-        move.setSymbol(currentPlayer.getSymbol());
+        int move = Move.withSymbol(packedMove, currentPlayer.getSymbol());
 
         // Make the move on the board
         int result = gameBoard.makeMove(move);
         this.lastMove = move;
+        record.addMove(x * gameBoard.getSize() + y);
 
         // Process the result
-        if (result == 1) {
+        if (result == Board.WIN) {
             // Player won
             this.state = GameState.PLAYER_WON;
             this.winner = currentPlayer;
-        } else if (result == 0) {
-            // Tie
+            record.setResult(currentPlayerIndex == 0 ? GameRecord.PLAYER1_WON : GameRecord.PLAYER2_WON);
+        } else if (result == Board.TIE || gameBoard.isDeadDraw()) {
+            // Tie, either on a full board or once no line can be completed any more
             this.state = GameState.TIE;
+            record.setResult(GameRecord.TIE);
         } else {
             // Game continues
             switchPlayer();
@@ -77,6 +125,16 @@ public class Game {
         return true;
     }
 
+    /**
+     * Checks if a position lies on the board
+     * @param x Row index
+     * @param y Column index
+     * @return true if both indices are within the board
+     */
+    public boolean isOnBoard(int x, int y) {
+        return x >= 0 && y >= 0 && x < gameBoard.getRows() && y < gameBoard.getSize();
+    }
+
     /**
      * Switches the current player
      */
@@ -110,9 +168,17 @@ public class Game {
 
     /**
      * Gets the last move made in the game
-     * @return The last move, or null if no moves made yet
+     * @return A new Move for the last move, or null if no moves made yet
      */
     public Move getLastMove() {
+        return lastMove == Move.NONE ? null : Move.unpack(lastMove);
+    }
+
+    /**
+     * Gets the last move made in the game without allocating
+     * @return The packed last move, or Move.NONE if no moves made yet
+     */
+    public int getLastMovePacked() {
         return lastMove;
     }
 
@@ -124,6 +190,22 @@ public class Game {
         return gameBoard.getGrid();
     }
 
+    /**
+     * Gets a read-only snapshot of the board, shared between readers until the next move
+     * @return The current board snapshot
+     */
+    public BoardSnapshot getBoardSnapshot() {
+        return gameBoard.snapshot();
+    }
+
+    /**
+     * Gets the record of every move made so far
+     * @return The game record
+     */
+    public GameRecord getRecord() {
+        return record;
+    }
+
     /**
      * Gets the first player
      * @return The first player
@@ -0,0 +1,130 @@
+package com.example.demo;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GameActor runs everything that reads or changes one game, one message at a time.
+ * Messages are queued in a mailbox and processed on a scheduler shared by all games; at most
+ * one scheduler thread processes a given mailbox, so a game is only ever touched by a single
+ * thread at a time and needs no locks. A game with no messages holds no thread at all, so
+ * thousands of games share a pool sized to the cores.
+ *
+ * Messages from clients are bounded (offer), so a client flooding the server cannot grow a
+ * game's mailbox without limit; messages from the server itself (post) are always accepted.
+ */
+public class GameActor {
+    // Messages processed per turn on the scheduler, before other games get theirs
+    private static final int BATCH_SIZE = 16;
+
+    private final Executor scheduler;
+    private final int capacity;
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger clientMessages = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    /**
+     * Creates an actor
+     * @param scheduler The executor shared by all games
+     * @param capacity Maximum number of queued messages from clients
+     */
+    public GameActor(Executor scheduler, int capacity) {
+        this.scheduler = scheduler;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Queue a message from a client, unless the mailbox is full
+     * @param message The message to process
+     * @return true if the message was queued, false if the mailbox is full or the actor stopped
+     */
+    public boolean offer(Runnable message) {
+        if (stopped) {
+            return false;
+        }
+        if (clientMessages.incrementAndGet() > capacity) {
+            clientMessages.decrementAndGet();
+            return false;
+        }
+        mailbox.add(new ClientMessage(message));
+        schedule();
+        return true;
+    }
+
+    /**
+     * Queue a message from the server, such as the start of the game or a computer move
+     * @param message The message to process
+     */
+    public void post(Runnable message) {
+        if (stopped) {
+            return;
+        }
+        mailbox.add(message);
+        schedule();
+    }
+
+    /**
+     * Stop processing messages; queued messages are dropped
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Start processing the mailbox on the scheduler unless it is already being processed
+     */
+    private void schedule() {
+        if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::processMailbox);
+            } catch (RejectedExecutionException e) {
+                // The server is stopping
+                scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Process a batch of queued messages in order (scheduler)
+     */
+    private void processMailbox() {
+        Runnable message;
+        for (int i = 0; i < BATCH_SIZE && (message = mailbox.poll()) != null; i++) {
+            if (message instanceof ClientMessage) {
+                clientMessages.decrementAndGet();
+            }
+            if (stopped) {
+                continue;
+            }
+            try {
+                message.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error processing game message: " + e.getMessage());
+            }
+        }
+        scheduled.set(false);
+        // Messages may remain after the batch, or have arrived before the flag was cleared
+        schedule();
+    }
+
+    /**
+     * A message counted against the mailbox capacity
+     */
+    private static class ClientMessage implements Runnable {
+        private final Runnable message;
+
+        ClientMessage(Runnable message) {
+            this.message = message;
+        }
+
+        @Override
+        public void run() {
+            message.run();
+        }
+    }
+}
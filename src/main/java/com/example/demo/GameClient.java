@@ -2,27 +2,41 @@ package com.example.demo;
 
 import javafx.application.Platform;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Client for connecting to the game server
+ * Speaks the text protocol, or the binary frames of WireProtocol if asked to with
+ * setBinaryFrames before registering and the server agrees.
  */
 public class GameClient implements Runnable {
     private static final String DEFAULT_HOST = "localhost";
     private static final int DEFAULT_PORT = 8888;
+    private static final byte[] BINARY_OPTION = WireProtocol.OPTION.getBytes(StandardCharsets.US_ASCII);
 
     private String host;
     private int port;
     private Socket socket;
-    private BufferedReader in;
+    private InputStream in;
     private PrintWriter out;
+    private OutputStream output;
     private boolean connected = false;
     private boolean running = false;
 
+    // Frames are requested at registration and used once the server agreed
+    private boolean binaryRequested = false;
+    private volatile boolean binaryFrames = false;
+
+    // Decodes the text lines from the server (receiving thread only)
+    private final CommandParser parser = new CommandParser();
+
     private int gameId = -1;
     private char playerSymbol;
     private NetworkGameView view;
@@ -54,8 +68,10 @@ public class GameClient implements Runnable {
     public boolean connect() {
         try {
             socket = new Socket(host, port);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            out = new PrintWriter(socket.getOutputStream(), true);
+            // Lines are read byte by byte, so frames can follow them once negotiated
+            in = new BufferedInputStream(socket.getInputStream());
+            output = socket.getOutputStream();
+            out = new PrintWriter(output, true);
 
             connected = true;
             running = true;
@@ -79,11 +95,85 @@ public class GameClient implements Runnable {
      * @param boardSize The requested board size
      */
     public void registerPlayer(String playerName, int boardSize) {
+        register(playerName, boardSize, boardSize, false, false);
+    }
+
+    /**
+     * Registers the player with the server for a game with a custom win length
+     * @param playerName The player's name
+     * @param boardSize The requested board size
+     * @param winLength The number of symbols in a row needed to win
+     */
+    public void registerPlayer(String playerName, int boardSize, int winLength) {
+        register(playerName, boardSize, winLength, false, false);
+    }
+
+    /**
+     * Registers the player with the server to play against the computer
+     * @param playerName The player's name
+     * @param boardSize The requested board size
+     */
+    public void registerComputerGame(String playerName, int boardSize) {
+        registerComputerGame(playerName, boardSize, boardSize);
+    }
+
+    /**
+     * Registers the player with the server to play against the computer with a custom win length
+     * @param playerName The player's name
+     * @param boardSize The requested board size
+     * @param winLength The number of symbols in a row needed to win
+     */
+    public void registerComputerGame(String playerName, int boardSize, int winLength) {
+        register(playerName, boardSize, winLength, false, true);
+    }
+
+    /**
+     * Registers the player with the server for a game on a cube (e.g. 4 for 4x4x4 Qubic).
+     * Rows of a cube are numbered across layers: row = layer * boardSize + row within the layer.
+     * @param playerName The player's name
+     * @param boardSize The requested size along each side of the cube
+     * @param vsComputer true to play against the computer instead of another player
+     */
+    public void registerCubeGame(String playerName, int boardSize, boolean vsComputer) {
+        register(playerName, boardSize, boardSize, true, vsComputer);
+    }
+
+    /**
+     * Sends a registration, as a frame once frames are in use, and otherwise as a text line
+     * that asks for frames if they were requested
+     * @param playerName The player's name
+     * @param boardSize The requested board size
+     * @param winLength The number of symbols in a row needed to win
+     * @param cube true for a cube of boardSize layers
+     * @param vsComputer true to play against the computer instead of another player
+     */
+    private void register(String playerName, int boardSize, int winLength, boolean cube, boolean vsComputer) {
         if (!connected) {
             return;
         }
 
-        sendMessage("REGISTER:" + playerName + ":" + boardSize);
+        if (binaryFrames) {
+            sendFrame(WireProtocol.register(playerName, boardSize, winLength, cube, vsComputer));
+            return;
+        }
+        sendMessage("REGISTER:" + playerName + ":" + boardSize + ":" + winLength + (cube ? ":3D" : "")
+                + (vsComputer ? ":AI" : "") + (binaryRequested ? ":" + WireProtocol.OPTION : ""));
+    }
+
+    /**
+     * Asks for the binary frames of WireProtocol at the next registration
+     * @param binaryRequested true to ask for frames
+     */
+    public void setBinaryFrames(boolean binaryRequested) {
+        this.binaryRequested = binaryRequested;
+    }
+
+    /**
+     * Checks if the server agreed to binary frames
+     * @return true if messages are exchanged as frames
+     */
+    public boolean isUsingBinaryFrames() {
+        return binaryFrames;
     }
 
     /**
@@ -96,7 +186,26 @@ public class GameClient implements Runnable {
             return;
         }
 
-        sendMessage("MOVE:" + gameId + ":" + row + ":" + col);
+        if (binaryFrames) {
+            sendFrame(WireProtocol.move(gameId, row, col));
+        } else {
+            sendMessage("MOVE:" + gameId + ":" + row + ":" + col);
+        }
+    }
+
+    /**
+     * Asks the server to suggest a move
+     */
+    public void requestHint() {
+        if (!connected || gameId == -1) {
+            return;
+        }
+
+        if (binaryFrames) {
+            sendFrame(WireProtocol.hint(gameId));
+        } else {
+            sendMessage("HINT:" + gameId);
+        }
     }
 
     /**
@@ -109,21 +218,50 @@ public class GameClient implements Runnable {
         }
     }
 
+    /**
+     * Sends a frame to the server
+     * @param frame The frame, with its length prefix
+     */
+    private synchronized void sendFrame(byte[] frame) {
+        if (output == null || !connected) {
+            return;
+        }
+        try {
+            output.write(frame);
+        } catch (IOException e) {
+            System.err.println("Error sending to server: " + e.getMessage());
+        }
+    }
+
     /**
      * Main loop for receiving server messages
      */
     @Override
     public void run() {
+        byte[] frame = null;
         while (running && connected) {
             try {
-                String message = in.readLine();
-                if (message == null) {
+                if (binaryFrames) {
+                    if (frame == null) {
+                        frame = new byte[WireProtocol.MAX_FRAME_LENGTH];
+                    }
+                    int length = WireProtocol.readFrame(in, frame);
+                    if (length < 0) {
+                        // Server closed the connection
+                        disconnect();
+                        break;
+                    }
+                    processFrame(ByteBuffer.wrap(frame, 0, length));
+                    continue;
+                }
+
+                if (!parser.readLine(in)) {
                     // Server closed the connection
                     disconnect();
                     break;
                 }
 
-                processMessage(message);
+                processLine(parser);
             } catch (IOException e) {
                 if (running) {
                     System.err.println("Error reading from server: " + e.getMessage());
@@ -135,78 +273,164 @@ public class GameClient implements Runnable {
     }
 
     /**
-     * Processes a message from the server
-     * @param message The message to process
+     * Processes a line from the server, decoding its fields in place
+     * Lines with missing or malformed numbers are ignored.
+     * @param line The parser holding the line
      */
-    private void processMessage(String message) {
-        System.out.println("Received from server: " + message);
-
-        String[] parts = message.split(":");
-        String command = parts[0];
-
-        switch (command) {
-            case "REGISTERED":
-                if (parts.length >= 2) {
-                    final String playerName = parts[1];
+    private void processLine(CommandParser line) {
+        int fields = line.getFieldCount();
+        switch (line.serverCommand()) {
+            case WireProtocol.REGISTERED:
+                if (fields >= 2) {
+                    // The server agreed to frames: everything after this line is a frame
+                    if (line.is(2, BINARY_OPTION)) {
+                        binaryFrames = true;
+                    }
+                    final String playerName = line.text(1);
                     Platform.runLater(() -> view.handleRegistered(playerName));
                 }
                 break;
 
-            case "WAITING":
-                if (parts.length >= 2) {
-                    final String waitMessage = parts[1];
+            case WireProtocol.WAITING:
+                if (fields >= 2) {
+                    final String waitMessage = line.rest(1);
                     Platform.runLater(() -> view.handleWaiting(waitMessage));
                 }
                 break;
 
-            case "MATCHED":
-                if (parts.length >= 4) {
-                    this.gameId = Integer.parseInt(parts[1]);
-                    this.playerSymbol = parts[2].charAt(0);
-                    final String matchMessage = parts[3];
+            case WireProtocol.MATCHED: {
+                // MATCHED:gameId:symbol:text
+                int matchedId = line.number(1, Integer.MAX_VALUE);
+                char matchedSymbol = line.symbol(2);
+                if (fields >= 4 && matchedId != CommandParser.INVALID && matchedSymbol != 0) {
+                    this.gameId = matchedId;
+                    this.playerSymbol = matchedSymbol;
+                    final String matchMessage = line.rest(3);
                     Platform.runLater(() -> view.handleMatched(gameId, playerSymbol, matchMessage));
                 }
                 break;
+            }
 
-            case "MOVE":
-                if (parts.length >= 4) {
-                    final int row = Integer.parseInt(parts[1]);
-                    final int col = Integer.parseInt(parts[2]);
-                    final char symbol = parts[3].charAt(0);
+            case WireProtocol.MOVED: {
+                // MOVE:row:col:symbol
+                final int row = line.number(1, Integer.MAX_VALUE);
+                final int col = line.number(2, Integer.MAX_VALUE);
+                final char symbol = line.symbol(3);
+                if (row != CommandParser.INVALID && col != CommandParser.INVALID && symbol != 0) {
                     Platform.runLater(() -> view.handleMoveMade(row, col, symbol));
                 }
                 break;
+            }
+
+            case WireProtocol.HINTED: {
+                // HINT:row:col
+                final int row = line.number(1, Integer.MAX_VALUE);
+                final int col = line.number(2, Integer.MAX_VALUE);
+                if (row != CommandParser.INVALID && col != CommandParser.INVALID) {
+                    Platform.runLater(() -> view.handleHint(row, col));
+                }
+                break;
+            }
 
-            case "YOUR_TURN":
+            case WireProtocol.YOUR_TURN:
                 Platform.runLater(() -> view.handleYourTurn());
                 break;
 
-            case "OPPONENT_TURN":
+            case WireProtocol.OPPONENT_TURN:
                 Platform.runLater(() -> view.handleOpponentTurn());
                 break;
 
-            case "GAME_OVER":
-                if (parts.length >= 2) {
-                    final String result = parts[1];
-                    String winnerName = "";
-                    if (parts.length >= 3 && result.equals("WIN")) {
-                        winnerName = parts[2];
-                    }
-                    final String finalWinnerName = winnerName;
-                    Platform.runLater(() -> view.handleGameOver(result, finalWinnerName));
+            case WireProtocol.GAME_OVER:
+                // GAME_OVER:WIN:name or GAME_OVER:TIE
+                if (fields >= 2) {
+                    final String result = line.text(1);
+                    final String winnerName = result.equals("WIN") ? line.text(2) : "";
+                    Platform.runLater(() -> view.handleGameOver(result, winnerName));
                 }
                 break;
 
-            case "OPPONENT_DISCONNECTED":
+            case WireProtocol.OPPONENT_DISCONNECTED:
                 Platform.runLater(() -> view.handleOpponentDisconnected());
                 break;
 
-            case "ERROR":
-                if (parts.length >= 2) {
-                    final String errorMessage = parts[1];
+            case WireProtocol.ERROR:
+                if (fields >= 2) {
+                    final String errorMessage = line.rest(1);
                     Platform.runLater(() -> view.handleError(errorMessage));
                 }
                 break;
+
+            default:
+                System.err.println("Unknown message from server: " + line);
+        }
+    }
+
+    /**
+     * Processes a frame from the server, decoding its fields without splitting strings
+     * @param frame The frame, from its opcode to its last field
+     */
+    private void processFrame(ByteBuffer frame) {
+        int opcode = frame.get() & 0xFF;
+        switch (opcode) {
+            case WireProtocol.REGISTERED: {
+                final String playerName = WireProtocol.readText(frame);
+                Platform.runLater(() -> view.handleRegistered(playerName));
+                break;
+            }
+
+            case WireProtocol.WAITING: {
+                final String waitMessage = WireProtocol.readText(frame);
+                Platform.runLater(() -> view.handleWaiting(waitMessage));
+                break;
+            }
+
+            case WireProtocol.MATCHED: {
+                this.gameId = WireProtocol.readNumber(frame);
+                this.playerSymbol = (char) frame.get();
+                final String matchMessage = WireProtocol.readText(frame);
+                Platform.runLater(() -> view.handleMatched(gameId, playerSymbol, matchMessage));
+                break;
+            }
+
+            case WireProtocol.MOVED: {
+                final int row = WireProtocol.readNumber(frame);
+                final int col = WireProtocol.readNumber(frame);
+                final char symbol = (char) frame.get();
+                Platform.runLater(() -> view.handleMoveMade(row, col, symbol));
+                break;
+            }
+
+            case WireProtocol.HINTED: {
+                final int row = WireProtocol.readNumber(frame);
+                final int col = WireProtocol.readNumber(frame);
+                Platform.runLater(() -> view.handleHint(row, col));
+                break;
+            }
+
+            case WireProtocol.YOUR_TURN:
+                Platform.runLater(() -> view.handleYourTurn());
+                break;
+
+            case WireProtocol.OPPONENT_TURN:
+                Platform.runLater(() -> view.handleOpponentTurn());
+                break;
+
+            case WireProtocol.GAME_OVER: {
+                final String result = WireProtocol.readNumber(frame) == WireProtocol.GAME_WIN ? "WIN" : "TIE";
+                final String winnerName = WireProtocol.readText(frame);
+                Platform.runLater(() -> view.handleGameOver(result, winnerName));
+                break;
+            }
+
+            case WireProtocol.OPPONENT_DISCONNECTED:
+                Platform.runLater(() -> view.handleOpponentDisconnected());
+                break;
+
+            case WireProtocol.ERROR: {
+                final String errorMessage = WireProtocol.readText(frame);
+                Platform.runLater(() -> view.handleError(errorMessage));
+                break;
+            }
         }
     }
 
@@ -219,7 +443,11 @@ public class GameClient implements Runnable {
         }
 
         // Send a disconnect message to the server
-        sendMessage("DISCONNECT");
+        if (binaryFrames) {
+            sendFrame(WireProtocol.disconnect());
+        } else {
+            sendMessage("DISCONNECT");
+        }
 
         // Set flags
         connected = false;
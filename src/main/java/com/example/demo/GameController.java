@@ -15,7 +15,7 @@ public class GameController implements Runnable {
     private PlayerGameView player2View;
     private boolean running = true;
     private final ReentrantLock gameLock = new ReentrantLock();
-    private Move lastMove = null;
+    private int lastMove = Move.NONE; // Packed, see Move.pack
 
     /**
      * Constructor for the game controller
@@ -112,7 +112,10 @@ public class GameController implements Runnable {
             return false;
         }
 
-        Move move = new Move(row, col, player.getSymbol());
+        if (!game.isOnBoard(row, col)) {
+            return false;
+        }
+        int move = Move.pack(row, col, player.getSymbol());
 
         // Lock for thread safety when modifying the game state
         gameLock.lock();
@@ -153,14 +156,14 @@ public class GameController implements Runnable {
     private void updateViews() {
         if (player1View != null && player2View != null) {
             // Get all the state we need while holding the lock
-            char[][] boardState;
+            BoardSnapshot boardState;
             Player currentPlayer;
             Player winner;
             Game.GameState gameState;
 
             gameLock.lock();
             try {
-                boardState = game.getBoardState();
+                boardState = game.getBoardSnapshot();
                 currentPlayer = game.getCurrentPlayer();
                 gameState = game.getState();
                 winner = game.getWinner();
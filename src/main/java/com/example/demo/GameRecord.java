@@ -0,0 +1,420 @@
+package com.example.demo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * GameRecord holds the full move sequence of a game in a compact form.
+ * Since players alternate and 'X' always starts, a move is just its cell index, packed
+ * with as few bits as the board needs (4 bits on 3x3 and 4x4, 5 on 5x5, 6 on 4x4x4, 8 on
+ * 16x16, the largest board the server accepts, and 9 on a 19x19 board played locally).
+ *
+ * Binary format, as written by writeTo:
+ * <pre>
+ *   magic 'G', version 1, board size, win length,
+ *   layers, result                                    6 bytes
+ *   player 1 name, player 2 name                      modified UTF-8 (DataOutput.writeUTF)
+ *   move count                                        unsigned varint
+ *   moves                                             ceil(count * bitsPerMove / 8) bytes
+ * </pre>
+ * Records can be written back to back on one stream and read again with readFrom.
+ */
+public class GameRecord {
+    public static final int IN_PROGRESS = 0;
+    public static final int PLAYER1_WON = 1;
+    public static final int PLAYER2_WON = 2;
+    public static final int TIE = 3;
+
+    private static final int MAGIC = 'G';
+    private static final int VERSION = 1;
+    private static final int MAX_SIZE = 255;
+    private static final int MAX_CELLS = 1 << 16;
+
+    private final int boardSize;
+    private final int winLength;
+    private final int layers;
+    private final String player1Name;
+    private final String player2Name;
+    private final short[] moves;
+    private int moveCount;
+    private int result = IN_PROGRESS;
+
+    /**
+     * Constructor for an empty record of a game where a full row, column or diagonal wins
+     * @param boardSize Size of the board (at most 255)
+     * @param player1Name Name of the player who plays 'X'
+     * @param player2Name Name of the player who plays 'O'
+     */
+    public GameRecord(int boardSize, String player1Name, String player2Name) {
+        this(boardSize, boardSize, player1Name, player2Name);
+    }
+
+    /**
+     * Constructor for an empty record
+     * @param boardSize Size of the board (at most 255)
+     * @param winLength Number of symbols in a row needed to win
+     * @param player1Name Name of the player who plays 'X'
+     * @param player2Name Name of the player who plays 'O'
+     */
+    public GameRecord(int boardSize, int winLength, String player1Name, String player2Name) {
+        this(boardSize, winLength, 1, player1Name, player2Name);
+    }
+
+    /**
+     * Constructor for an empty record of a game on a flat board or a cube
+     * @param boardSize Size of the board along each side (at most 255, and 65536 cells in total)
+     * @param winLength Number of symbols in a row needed to win
+     * @param layers 1 for a flat board, boardSize for a cube
+     * @param player1Name Name of the player who plays 'X'
+     * @param player2Name Name of the player who plays 'O'
+     */
+    public GameRecord(int boardSize, int winLength, int layers, String player1Name, String player2Name) {
+        if (boardSize < 1 || boardSize > MAX_SIZE || (long) layers * boardSize * boardSize > MAX_CELLS) {
+            throw new IllegalArgumentException("Board must have a size of 1 to " + MAX_SIZE + " and at most "
+                    + MAX_CELLS + " cells: " + boardSize);
+        }
+        if (winLength < 1 || winLength > boardSize) {
+            throw new IllegalArgumentException("Win length must be between 1 and " + boardSize + ": " + winLength);
+        }
+        if (layers != 1 && layers != boardSize) {
+            throw new IllegalArgumentException("A board has 1 layer or is a cube: " + layers + " layers");
+        }
+        this.boardSize = boardSize;
+        this.winLength = winLength;
+        this.layers = layers;
+        this.player1Name = player1Name;
+        this.player2Name = player2Name;
+        this.moves = new short[layers * boardSize * boardSize];
+    }
+
+    /**
+     * Append a move
+     * @param cell Cell index (row * size + column)
+     */
+    public void addMove(int cell) {
+        moves[moveCount++] = (short) cell;
+    }
+
+    /**
+     * Set the result of the game
+     * @param result IN_PROGRESS, PLAYER1_WON, PLAYER2_WON or TIE
+     */
+    public void setResult(int result) {
+        this.result = result;
+    }
+
+    /**
+     * Get the number of bits used per move on this board size
+     * @return Bits per move
+     */
+    public int getBitsPerMove() {
+        int cellCount = moves.length;
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(cellCount - 1));
+    }
+
+    /**
+     * Write the record to a stream
+     * @param out The stream to write to
+     * @throws IOException If the stream fails
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(boardSize);
+        out.writeByte(winLength);
+        out.writeByte(layers);
+        out.writeByte(result);
+        out.writeUTF(player1Name);
+        out.writeUTF(player2Name);
+        writeVarint(out, moveCount);
+
+        // Pack the moves, most significant bit first
+        int bits = getBitsPerMove();
+        int buffer = 0;
+        int buffered = 0;
+        for (int i = 0; i < moveCount; i++) {
+            buffer = (buffer << bits) | (moves[i] & 0xFFFF);
+            buffered += bits;
+            while (buffered >= 8) {
+                buffered -= 8;
+                out.writeByte(buffer >>> buffered);
+            }
+        }
+        if (buffered > 0) {
+            out.writeByte(buffer << (8 - buffered));
+        }
+    }
+
+    /**
+     * Read the next record from a stream
+     * @param in The stream to read from
+     * @return The record, or null at the end of the stream
+     * @throws IOException If the stream fails or does not hold a valid record
+     */
+    public static GameRecord readFrom(DataInputStream in) throws IOException {
+        int magic = in.read();
+        if (magic < 0) {
+            return null; // End of stream
+        }
+        if (magic != MAGIC || in.readUnsignedByte() != VERSION) {
+            throw new IOException("Not a game record");
+        }
+        int boardSize = in.readUnsignedByte();
+        int winLength = in.readUnsignedByte();
+        int layers = in.readUnsignedByte();
+        int result = in.readUnsignedByte();
+        if (boardSize < 1 || layers * boardSize * boardSize > MAX_CELLS || winLength < 1 || winLength > boardSize
+                || (layers != 1 && layers != boardSize) || result > TIE) {
+            throw new IOException("Corrupt game record header");
+        }
+        GameRecord record = new GameRecord(boardSize, winLength, layers, in.readUTF(), in.readUTF());
+        record.result = result;
+
+        int count = readVarint(in);
+        int cellCount = record.moves.length;
+        if (count > cellCount) {
+            throw new IOException("Corrupt game record: " + count + " moves on " + cellCount + " cells");
+        }
+
+        int bits = record.getBitsPerMove();
+        int mask = (1 << bits) - 1;
+        int buffer = 0;
+        int buffered = 0;
+        for (int i = 0; i < count; i++) {
+            while (buffered < bits) {
+                buffer = (buffer << 8) | in.readUnsignedByte();
+                buffered += 8;
+            }
+            buffered -= bits;
+            int cell = (buffer >>> buffered) & mask;
+            if (cell >= cellCount) {
+                throw new IOException("Corrupt game record: cell " + cell);
+            }
+            record.addMove(cell);
+        }
+        return record;
+    }
+
+    /**
+     * Replay the moves on a new board
+     * @param moveLimit Number of moves to replay
+     * @return A board holding the position after that many moves
+     */
+    public Board replay(int moveLimit) {
+        Board board = new Board(boardSize, winLength, layers);
+        board.initializeBoard();
+        int limit = Math.min(moveLimit, moveCount);
+        for (int i = 0; i < limit; i++) {
+            board.play(moves[i] & 0xFFFF, i % 2 == 0 ? 'X' : 'O');
+        }
+        return board;
+    }
+
+    /**
+     * Check that the record is a legal game whose stored result is the one its moves reach
+     * @throws IOException If a move is on a taken cell or after the end, or the result disagrees
+     */
+    public void verify() throws IOException {
+        Board board = new Board(boardSize, winLength, layers);
+        board.initializeBoard();
+        int reached = IN_PROGRESS;
+        for (int i = 0; i < moveCount; i++) {
+            int cell = moves[i] & 0xFFFF;
+            if (reached != IN_PROGRESS || !board.isEmpty(cell)) {
+                throw new IOException("Illegal move " + (i + 1) + " on cell " + cell);
+            }
+            int outcome = board.play(cell, i % 2 == 0 ? 'X' : 'O');
+            if (outcome == Board.WIN) {
+                reached = i % 2 == 0 ? PLAYER1_WON : PLAYER2_WON;
+            } else if (outcome == Board.TIE || board.isDeadDraw()) {
+                reached = TIE; // Game also ends a game nobody can win any more
+            }
+        }
+        // Abandoned games keep IN_PROGRESS, as do their moves
+        if (result != reached) {
+            throw new IOException("Result " + result + " recorded, but the moves reach " + reached);
+        }
+    }
+
+    /**
+     * Check a stream of records: every record must verify and encode back to the same bytes
+     * @param bytes The records, written back to back
+     * @return The number of records
+     * @throws IOException If a record is corrupt, illegal or does not round-trip
+     */
+    public static int check(byte[] bytes) throws IOException {
+        ByteArrayInputStream input = new ByteArrayInputStream(bytes);
+        DataInputStream in = new DataInputStream(input);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        int count = 0;
+        int start = 0;
+        GameRecord record;
+        while ((record = readFrom(in)) != null) {
+            int end = bytes.length - input.available();
+            record.verify();
+            encoded.reset();
+            record.writeTo(new DataOutputStream(encoded));
+            if (!Arrays.equals(encoded.toByteArray(), Arrays.copyOfRange(bytes, start, end))) {
+                throw new IOException("Record " + (count + 1) + " does not encode back to its bytes");
+            }
+            count++;
+            start = end;
+        }
+        return count;
+    }
+
+    /**
+     * Checks a file of records from the command line, such as the server's game log; without a
+     * file, random games on several board shapes are encoded and checked instead
+     * Usage: GameRecord [file]
+     * @param args Path of the file to check
+     * @throws IOException If the file cannot be read or a record fails its check
+     */
+    public static void main(String[] args) throws IOException {
+        byte[] bytes;
+        if (args.length > 0) {
+            bytes = Files.readAllBytes(Paths.get(args[0]));
+        } else {
+            // Size, win length and layers: 3x3, 4x4x4, 16x16 k5 (256 cells) and 19x19 k5 (9 bits a move)
+            int[][] shapes = { {3, 3, 1}, {4, 4, 4}, {16, 5, 1}, {19, 5, 1} };
+            Random random = new Random(1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (int game = 0; game < 4000; game++) {
+                int[] shape = shapes[game % shapes.length];
+                randomGame(shape[0], shape[1], shape[2], random).writeTo(new DataOutputStream(out));
+            }
+            bytes = out.toByteArray();
+        }
+
+        long start = System.nanoTime();
+        int count = check(bytes);
+        long millis = (System.nanoTime() - start) / 1_000_000L;
+        System.out.println(count + " records (" + bytes.length + " bytes) replayed and round-tripped in "
+                + millis + " ms");
+    }
+
+    /**
+     * Record a game of random moves, abandoned early now and then
+     */
+    private static GameRecord randomGame(int size, int winLength, int layers, Random random) {
+        GameRecord record = new GameRecord(size, winLength, layers, "X", "O");
+        Board board = new Board(size, winLength, layers);
+        board.initializeBoard();
+        int abandonAt = random.nextInt(4) == 0 ? random.nextInt(board.getCellCount()) : -1;
+        for (int ply = 0; ply != abandonAt; ply++) {
+            int cell;
+            do {
+                cell = random.nextInt(board.getCellCount());
+            } while (!board.isEmpty(cell));
+            int outcome = board.play(cell, ply % 2 == 0 ? 'X' : 'O');
+            record.addMove(cell);
+            if (outcome == Board.WIN) {
+                record.setResult(ply % 2 == 0 ? PLAYER1_WON : PLAYER2_WON);
+                break;
+            } else if (outcome == Board.TIE || board.isDeadDraw()) {
+                record.setResult(TIE);
+                break;
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Write an unsigned varint (7 bits per byte, high bit set on all but the last byte)
+     */
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Read an unsigned varint
+     */
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+
+    /**
+     * Get the board size
+     * @return The size of the board
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * Get the win length
+     * @return Number of symbols in a row needed to win
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Get the number of layers
+     * @return 1 for a flat board, the board size for a cube
+     */
+    public int getLayers() {
+        return layers;
+    }
+
+    /**
+     * Get the name of the player who plays 'X'
+     * @return Player 1's name
+     */
+    public String getPlayer1Name() {
+        return player1Name;
+    }
+
+    /**
+     * Get the name of the player who plays 'O'
+     * @return Player 2's name
+     */
+    public String getPlayer2Name() {
+        return player2Name;
+    }
+
+    /**
+     * Get the number of moves recorded
+     * @return The move count
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Get a recorded move
+     * @param index Move number, starting at 0
+     * @return Cell index (row * size + column) of the move
+     */
+    public int getMove(int index) {
+        return moves[index] & 0xFFFF;
+    }
+
+    /**
+     * Get the result of the game
+     * @return IN_PROGRESS, PLAYER1_WON, PLAYER2_WON or TIE
+     */
+    public int getResult() {
+        return result;
+    }
+}
@@ -1,28 +1,75 @@
 package com.example.demo;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Server that manages game connections and relays moves between players
  */
 public class GameServer {
+    /**
+     * How client connections are served
+     */
+    public enum Transport {
+        BLOCKING,        // One platform thread per client, blocking on its socket (ClientHandler)
+        VIRTUAL_THREADS, // One virtual thread per client, blocking on its socket
+        NIO              // A few selector threads for all clients (NioServerTransport)
+    }
+
     private static final int DEFAULT_PORT = 8888;
+    private static final long AI_MOVE_DEADLINE_MILLIS = 500;
+    // Moves and hints a client may have queued for one game before it is told the game is busy
+    private static final int MAILBOX_CAPACITY = 32;
+    private static final int MAX_BOARD_SIZE = 16;
+    private static final int MAX_CUBE_SIZE = 6;
+    // Options of a text registration
+    private static final byte[] AI_OPTION = {'A', 'I'};
+    private static final byte[] CUBE_OPTION = {'3', 'D'};
+    private static final byte[] BINARY_OPTION = WireProtocol.OPTION.getBytes(StandardCharsets.US_ASCII);
+    private static final String SOLVED_DIRECTORY = "data";
+    private static final String RECORD_LOG = "games.rec";
+    // Print the depth and speed of every computer move (java -Dtictactoe.logSearches=true ...)
+    private static final boolean LOG_SEARCHES = Boolean.getBoolean("tictactoe.logSearches");
     private final int port;
+    private final Transport transport;
     private ServerSocket serverSocket;
+    private NioServerTransport nioTransport;
+    private ExecutorService virtualThreads;
     private boolean running;
 
     // List to keep track of client handler threads
     private List<Thread> clientThreads;
-    private List<Thread> gameThreads;
+
+    // Runs the game actors, and the engine searches for computer moves and hints
+    private final ExecutorService gameScheduler;
+    private final ExecutorService searchThreads;
 
     // Maps connected clients to their players
-    private Map<ClientHandler, Player> connectedPlayers;
+    private Map<ClientConnection, Player> connectedPlayers;
+
+    // Players waiting for an opponent, in the order they registered (guarded by matchLock)
+    private final Map<ClientConnection, Player> waitingPlayers = new LinkedHashMap<>();
 
     // Maps game IDs to game info
     private Map<Integer, GameInfo> activeGames;
@@ -31,7 +78,19 @@ public class GameServer {
     private Manager gameManager;
 
     // Next game ID
-    private int nextGameId = 1;
+    private final AtomicInteger nextGameId = new AtomicInteger(1);
+
+    // Guards matchmaking; a lock rather than synchronized, since messages are sent while
+    // holding it and a virtual thread blocked in synchronized code pins its carrier thread
+    private final ReentrantLock matchLock = new ReentrantLock();
+
+    // Append-only log of finished games, as GameRecords (null if it could not be opened),
+    // written by a single background thread so game actors never wait for the disk
+    private DataOutputStream recordLog;
+    private final ExecutorService recordWriter = Executors.newSingleThreadExecutor();
+
+    // Solved positions, indexed by board size (null where no book or tablebase file was found)
+    private final MoveLookup[] solvedBoards = new MoveLookup[MAX_BOARD_SIZE + 1];
 
     /**
      * Creates a game server with the default port
@@ -45,22 +104,148 @@ public class GameServer {
      * @param port Port to listen on
      */
     public GameServer(int port) {
+        this(port, Transport.BLOCKING);
+    }
+
+    /**
+     * Creates a game server with the specified port and transport
+     * @param port Port to listen on
+     * @param transport How client connections are served
+     */
+    public GameServer(int port, Transport transport) {
         this.port = port;
+        this.transport = transport;
         this.connectedPlayers = new ConcurrentHashMap<>();
         this.activeGames = new ConcurrentHashMap<>();
         this.gameManager = new Manager();
         this.clientThreads = new ArrayList<>();
-        this.gameThreads = new ArrayList<>();
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.gameScheduler = Executors.newFixedThreadPool(Math.max(2, cores));
+        // Searches are CPU bound, so more threads than cores would only slow each other down;
+        // a game has at most one computer move and one hint searching or queued at a time
+        this.searchThreads = Executors.newFixedThreadPool(Math.max(2, cores));
+        loadSolvedBoards();
+    }
+
+    /**
+     * Memory-maps the opening books, tablebases and solved positions generated by
+     * OpeningBook.main, Tablebase.main and ProofNumberSearch.main, if they exist. A book is
+     * preferred, since it stores the move itself, and solved positions are only used for
+     * boards too large for a tablebase. Positions without any of them are played by search.
+     */
+    private void loadSolvedBoards() {
+        for (int size = 1; size <= MAX_BOARD_SIZE; size++) {
+            Path bookPath = Paths.get(SOLVED_DIRECTORY, "book" + size + "x" + size + ".bin");
+            Path tablebasePath = Paths.get(SOLVED_DIRECTORY, "tablebase" + size + "x" + size + ".bin");
+            Path solvedPath = Paths.get(SOLVED_DIRECTORY, "solved" + size + "x" + size + ".bin");
+            try {
+                if (size <= OpeningBook.MAX_SIZE && Files.exists(bookPath)) {
+                    solvedBoards[size] = OpeningBook.open(bookPath);
+                    System.out.println("Loaded opening book " + bookPath);
+                } else if (size <= Tablebase.MAX_SIZE && Files.exists(tablebasePath)) {
+                    solvedBoards[size] = Tablebase.open(tablebasePath);
+                    System.out.println("Loaded tablebase " + tablebasePath);
+                } else if (Files.exists(solvedPath)) {
+                    SolvedPositions solved = SolvedPositions.open(solvedPath);
+                    solvedBoards[size] = solved;
+                    System.out.println("Loaded " + solved.getCount() + " solved positions " + solvedPath);
+                }
+            } catch (IOException e) {
+                System.err.println("Error loading solved positions for " + size + "x" + size + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Creates the engine for a game's computer moves and hints
+     * @param boardSize The board size of the game
+     * @return A book, tablebase or solved positions lookup if one is loaded for the size, otherwise a search
+     *         (the lookup itself defers to the search when the game's win length differs)
+     */
+    private MoveEngine createEngine(int boardSize) {
+        MoveEngine search = new IterativeDeepeningSearch(AI_MOVE_DEADLINE_MILLIS);
+        if (boardSize < solvedBoards.length && solvedBoards[boardSize] != null) {
+            return new TablebaseEngine(solvedBoards[boardSize], search);
+        }
+        return search;
+    }
+
+    /**
+     * Opens the game log for appending, so every game played on the server can be replayed
+     * and audited later (see GameRecord.main); the server runs without it if it cannot be opened
+     * (record writer)
+     */
+    private void openRecordLog() {
+        Path path = Paths.get(SOLVED_DIRECTORY, RECORD_LOG);
+        try {
+            Files.createDirectories(path.getParent());
+            recordLog = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile(), true)));
+            System.out.println("Recording games to " + path);
+        } catch (IOException e) {
+            System.err.println("Error opening game log " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queues the record of a game that ended for the game log (game actor)
+     * The game is over and its actor stopped, so the record no longer changes.
+     * @param gameInfo The game info
+     */
+    private void recordGame(GameInfo gameInfo) {
+        GameRecord record = gameInfo.getGame().getRecord();
+        try {
+            recordWriter.execute(() -> {
+                try {
+                    if (recordLog != null) {
+                        record.writeTo(recordLog);
+                        recordLog.flush();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error recording game " + gameInfo.getGameId() + ": " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The server is stopping
+        }
+    }
+
+    /**
+     * Closes the game log once the records queued before it are written (record writer)
+     */
+    private void closeRecordLog() {
+        try {
+            if (recordLog != null) {
+                recordLog.close();
+                recordLog = null;
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing game log: " + e.getMessage());
+        }
     }
 
     /**
      * Starts the server
      */
     public void start() {
+        recordWriter.execute(this::openRecordLog);
         try {
+            if (transport == Transport.NIO) {
+                int cores = Runtime.getRuntime().availableProcessors();
+                nioTransport = new NioServerTransport(this, port, Math.max(1, cores / 2), Math.max(4, 2 * cores));
+                nioTransport.start();
+                running = true;
+                System.out.println("Game server started on port " + port + " (non-blocking)");
+                return;
+            }
+
             serverSocket = new ServerSocket(port);
             running = true;
-            System.out.println("Game server started on port " + port);
+            if (transport == Transport.VIRTUAL_THREADS) {
+                virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+                System.out.println("Game server started on port " + port + " (virtual threads)");
+            } else {
+                System.out.println("Game server started on port " + port);
+            }
 
             // Thread for accepting connections
             Thread acceptThread = new Thread(this::acceptConnections);
@@ -79,17 +264,25 @@ public class GameServer {
         while (running) {
             try {
                 Socket clientSocket = serverSocket.accept();
+                // Send short lines at once instead of waiting for the previous one to be acknowledged
+                clientSocket.setTcpNoDelay(true);
                 System.out.println("New client connected: " + clientSocket.getInetAddress());
 
                 // Create a handler for this client
                 ClientHandler clientHandler = new ClientHandler(clientSocket, this);
 
-                // Create and start a thread for this client
+                // Run the client on a virtual thread, or create and start a thread for it
+                if (virtualThreads != null) {
+                    virtualThreads.execute(clientHandler);
+                    continue;
+                }
                 Thread clientThread = new Thread(clientHandler);
                 clientThread.start();
 
                 // Add to the list of client threads
                 synchronized (clientThreads) {
+                    // Drop finished threads, which would otherwise keep their handlers reachable
+                    clientThreads.removeIf(thread -> !thread.isAlive());
                     clientThreads.add(clientThread);
                 }
 
@@ -101,54 +294,268 @@ public class GameServer {
         }
     }
 
+    /**
+     * Processes a line of the text protocol received from a client
+     * Fields are decoded in place by the parser, and a move that cannot be on any board is
+     * rejected here, before it is queued for its game.
+     * @param connection The client that sent the message
+     * @param line The parser holding the line
+     */
+    public void processLine(ClientConnection connection, CommandParser line) {
+        int fields = line.getFieldCount();
+        switch (line.clientCommand()) {
+            case WireProtocol.REGISTER: {
+                // Format: REGISTER:playerName:boardSize[:winLength][:3D][:AI][:BIN]
+                int boardSize = line.number(2, Integer.MAX_VALUE);
+                if (fields < 3 || boardSize == CommandParser.INVALID) {
+                    break;
+                }
+                int winLength = boardSize;
+                int layers = 1;
+                boolean vsComputer = false;
+                boolean binaryFrames = false;
+                for (int i = 3; i < fields && winLength != CommandParser.INVALID; i++) {
+                    if (line.is(i, AI_OPTION)) {
+                        vsComputer = true;
+                    } else if (line.is(i, CUBE_OPTION)) {
+                        layers = boardSize;
+                    } else if (line.is(i, BINARY_OPTION)) {
+                        binaryFrames = true;
+                    } else {
+                        winLength = line.number(i, Integer.MAX_VALUE);
+                    }
+                }
+                if (winLength == CommandParser.INVALID) {
+                    break;
+                }
+                registerPlayer(connection, line.text(1), boardSize, winLength, layers, vsComputer, binaryFrames);
+                return;
+            }
+
+            case WireProtocol.MOVE: {
+                // Format: MOVE:gameId:row:col
+                int gameId = line.number(1, Integer.MAX_VALUE);
+                int row = line.number(2, MAX_CUBE_SIZE * MAX_CUBE_SIZE - 1);
+                int col = line.number(3, MAX_BOARD_SIZE - 1);
+                if (fields != 4 || gameId == CommandParser.INVALID) {
+                    break;
+                }
+                if (row == CommandParser.INVALID || col == CommandParser.INVALID) {
+                    connection.send(WireProtocol.ERROR, "Invalid move");
+                    return;
+                }
+                processMove(connection, gameId, row, col);
+                return;
+            }
+
+            case WireProtocol.HINT: {
+                // Format: HINT:gameId
+                int gameId = line.number(1, Integer.MAX_VALUE);
+                if (fields != 2 || gameId == CommandParser.INVALID) {
+                    break;
+                }
+                processHint(connection, gameId);
+                return;
+            }
+
+            case WireProtocol.DISCONNECT:
+                connection.close();
+                return;
+
+            default:
+                System.out.println("Unknown command: " + line);
+                return;
+        }
+        System.err.println("Malformed message: " + line);
+        connection.send(WireProtocol.ERROR, "Invalid message format");
+    }
+
+    /**
+     * Processes a binary frame received from a client that registered for WireProtocol frames
+     * Frames are not logged, since they are meant for high-volume clients.
+     * @param connection The client that sent the frame
+     * @param frame The frame, from its opcode to its last field
+     */
+    public void processFrame(ClientConnection connection, ByteBuffer frame) {
+        try {
+            int opcode = frame.get() & 0xFF;
+            switch (opcode) {
+                case WireProtocol.REGISTER: {
+                    String playerName = WireProtocol.readText(frame);
+                    int boardSize = WireProtocol.readNumber(frame);
+                    int winLength = WireProtocol.readNumber(frame);
+                    int flags = WireProtocol.readNumber(frame);
+                    registerPlayer(connection, playerName, boardSize, winLength == 0 ? boardSize : winLength,
+                            (flags & WireProtocol.FLAG_CUBE) != 0 ? boardSize : 1,
+                            (flags & WireProtocol.FLAG_VS_COMPUTER) != 0);
+                    break;
+                }
+
+                case WireProtocol.MOVE: {
+                    int gameId = WireProtocol.readNumber(frame);
+                    int row = WireProtocol.readNumber(frame);
+                    int col = WireProtocol.readNumber(frame);
+                    processMove(connection, gameId, row, col);
+                    break;
+                }
+
+                case WireProtocol.HINT:
+                    processHint(connection, WireProtocol.readNumber(frame));
+                    break;
+
+                case WireProtocol.DISCONNECT:
+                    connection.close();
+                    break;
+
+                default:
+                    System.out.println("Unknown opcode: " + opcode);
+            }
+        } catch (Exception e) {
+            System.err.println("Error processing frame: " + e);
+            connection.send(WireProtocol.ERROR, "Invalid message format");
+        }
+    }
+
     /**
      * Registers a player and attempts to find a match
      * @param clientHandler The client handler for the player
      * @param playerName The player's name
      * @param boardSize The requested board size
      */
-    public void registerPlayer(ClientHandler clientHandler, String playerName, int boardSize) {
+    public void registerPlayer(ClientConnection clientHandler, String playerName, int boardSize) {
+        registerPlayer(clientHandler, playerName, boardSize, false);
+    }
+
+    /**
+     * Registers a player and either starts a game against the computer or attempts to find a match
+     * @param clientHandler The client handler for the player
+     * @param playerName The player's name
+     * @param boardSize The requested board size
+     * @param vsComputer true to play against the computer instead of another player
+     */
+    public void registerPlayer(ClientConnection clientHandler, String playerName, int boardSize,
+                               boolean vsComputer) {
+        registerPlayer(clientHandler, playerName, boardSize, boardSize, 1, vsComputer);
+    }
+
+    /**
+     * Registers a player for a game with a custom win length
+     * @param clientHandler The client handler for the player
+     * @param playerName The player's name
+     * @param boardSize The requested board size
+     * @param winLength The number of symbols in a row needed to win
+     * @param layers 1 for a flat board, boardSize for a cube (its rows are numbered across layers)
+     * @param vsComputer true to play against the computer instead of another player
+     */
+    public void registerPlayer(ClientConnection clientHandler, String playerName, int boardSize,
+                               int winLength, int layers, boolean vsComputer) {
+        registerPlayer(clientHandler, playerName, boardSize, winLength, layers, vsComputer, false);
+    }
+
+    /**
+     * Registers a player, switching the connection to binary frames if the client asked for them
+     * @param clientHandler The client handler for the player
+     * @param playerName The player's name
+     * @param boardSize The requested board size
+     * @param winLength The number of symbols in a row needed to win
+     * @param layers 1 for a flat board, boardSize for a cube (its rows are numbered across layers)
+     * @param vsComputer true to play against the computer instead of another player
+     * @param binaryFrames true if the client asked for WireProtocol frames
+     */
+    public void registerPlayer(ClientConnection clientHandler, String playerName, int boardSize,
+                               int winLength, int layers, boolean vsComputer, boolean binaryFrames) {
+        // Reject rules the board cannot hold
+        int maxSize = layers > 1 ? MAX_CUBE_SIZE : MAX_BOARD_SIZE;
+        if (boardSize < 1 || boardSize > maxSize || winLength < 1 || winLength > boardSize
+                || (layers != 1 && layers != boardSize)) {
+            clientHandler.send(WireProtocol.ERROR, "Unsupported board size or win length");
+            return;
+        }
+
         // Create a player object
         Player player = new Player(playerName, boardSize);
+        player.setWinLength(winLength);
+        player.setLayers(layers);
 
         // Associate the client with the player
         connectedPlayers.put(clientHandler, player);
 
-        // Send acknowledgment to the client
-        clientHandler.sendMessage("REGISTERED:" + playerName);
+        // Send acknowledgment to the client, as the last text line if it switches to frames
+        if (binaryFrames) {
+            clientHandler.startBinaryFrames(playerName);
+        } else {
+            clientHandler.send(WireProtocol.REGISTERED, playerName);
+        }
+
+        System.out.println("Player registered: " + playerName + " (board size: " + boardSize +
+                ", win length: " + winLength + ", layers: " + layers + ")");
 
-        System.out.println("Player registered: " + playerName + " (board size: " + boardSize + ")");
+        // A player registering again replaces their earlier request
+        stopWaiting(clientHandler);
+        if (vsComputer) {
+            createComputerGame(clientHandler, player);
+            return;
+        }
 
         // Try to match with another player
         findMatch(clientHandler, player);
     }
 
     /**
-     * Tries to find a match for a player
+     * Removes a client from the players waiting for an opponent
+     * @param clientHandler The client handler
+     */
+    private void stopWaiting(ClientConnection clientHandler) {
+        matchLock.lock();
+        try {
+            waitingPlayers.remove(clientHandler);
+        } finally {
+            matchLock.unlock();
+        }
+    }
+
+    /**
+     * Tries to find a match for a player with the same rules
+     * Holds the match lock so that two players registering at the same time are matched only once.
      * @param clientHandler The client handler
      * @param player The player to match
      */
-    private void findMatch(ClientHandler clientHandler, Player player) {
+    private void findMatch(ClientConnection clientHandler, Player player) {
+        matchLock.lock();
+        try {
+            findMatchLocked(clientHandler, player);
+        } finally {
+            matchLock.unlock();
+        }
+    }
+
+    /**
+     * Tries to find a match for a player, with the match lock held
+     * @param clientHandler The client handler
+     * @param player The player to match
+     */
+    private void findMatchLocked(ClientConnection clientHandler, Player player) {
         // Check if there's a waiting player with the same board size
-        for (Map.Entry<ClientHandler, Player> entry : connectedPlayers.entrySet()) {
-            ClientHandler otherHandler = entry.getKey();
+        Iterator<Map.Entry<ClientConnection, Player>> waiting = waitingPlayers.entrySet().iterator();
+        while (waiting.hasNext()) {
+            Map.Entry<ClientConnection, Player> entry = waiting.next();
+            ClientConnection otherHandler = entry.getKey();
             Player otherPlayer = entry.getValue();
 
-            // Skip the current player and players already in games
-            if (otherHandler == clientHandler || isPlayerInGame(otherPlayer)) {
-                continue;
-            }
-
-            // Check if board sizes match
-            if (otherPlayer.getBoardSize() == player.getBoardSize()) {
+            // Check if board sizes and win lengths match
+            if (otherPlayer.getBoardSize() == player.getBoardSize()
+                    && otherPlayer.getWinLength() == player.getWinLength()
+                    && otherPlayer.getLayers() == player.getLayers()) {
                 // Create a game for these players
+                waiting.remove();
                 createGame(clientHandler, player, otherHandler, otherPlayer);
                 return;
             }
         }
 
         // No match found, notify the player they're waiting
-        clientHandler.sendMessage("WAITING:Looking for an opponent...");
+        waitingPlayers.put(clientHandler, player);
+        clientHandler.send(WireProtocol.WAITING, "Looking for an opponent...");
         System.out.println("Player " + player.getName() + " is waiting for a match");
     }
 
@@ -159,32 +566,31 @@ public class GameServer {
      * @param handler2 Handler for player 2
      * @param player2 Player 2
      */
-    private void createGame(ClientHandler handler1, Player player1,
-                            ClientHandler handler2, Player player2) {
+    private void createGame(ClientConnection handler1, Player player1,
+                            ClientConnection handler2, Player player2) {
         // Assign symbols
         player1.setSymbol('X');
         player2.setSymbol('O');
 
         // Create the game
-        Game game = new Game(player1, player2, player1.getBoardSize());
-
-        // Create a game controller
-        GameController controller = new GameController(game);
+        Game game = new Game(player1, player2, player1.getBoardSize(), player1.getWinLength(),
+                player1.getLayers());
 
         // Generate a unique game ID
-        int gameId = nextGameId++;
+        int gameId = nextGameId.getAndIncrement();
 
-        // Store the game info
-        GameInfo gameInfo = new GameInfo(gameId, game, controller, handler1, handler2);
+        // Store the game info; its hint engine is created with the first hint
+        GameInfo gameInfo = new GameInfo(gameId, game, handler1, handler2, null,
+                new GameActor(gameScheduler, MAILBOX_CAPACITY));
         activeGames.put(gameId, gameInfo);
 
-        // Create a runnable for the game
-        Runnable gameRunnable = () -> {
+        // Start the game as the first message of its actor
+        gameInfo.getActor().post(() -> {
             // Notify players about the match
-            handler1.sendMessage("MATCHED:" + gameId + ":" + player1.getSymbol() +
-                    ":Playing against " + player2.getName());
-            handler2.sendMessage("MATCHED:" + gameId + ":" + player2.getSymbol() +
-                    ":Playing against " + player1.getName());
+            handler1.send(WireProtocol.MATCHED, gameId, 0, player1.getSymbol(),
+                    "Playing against " + player2.getName());
+            handler2.send(WireProtocol.MATCHED, gameId, 0, player2.getSymbol(),
+                    "Playing against " + player1.getName());
 
             System.out.println("Created game " + gameId + " between " +
                     player1.getName() + " and " + player2.getName());
@@ -194,16 +600,49 @@ public class GameServer {
 
             // The first player (X) has the first turn
             notifyPlayerTurn(gameInfo);
-        };
+        });
+    }
 
-        // Create and start a thread for this game
-        Thread gameThread = new Thread(gameRunnable);
-        gameThread.start();
+    /**
+     * Creates a game between a player and the computer
+     * The human player always plays 'X' and moves first.
+     * @param handler Handler for the human player
+     * @param player The human player
+     */
+    private void createComputerGame(ClientConnection handler, Player player) {
+        // Create the computer opponent
+        Player computer = new Player("Computer", player.getBoardSize());
+        computer.setWinLength(player.getWinLength());
+        computer.setLayers(player.getLayers());
+        computer.setHuman(false);
 
-        // Add to the list of game threads
-        synchronized (gameThreads) {
-            gameThreads.add(gameThread);
-        }
+        // Assign symbols
+        player.setSymbol('X');
+        computer.setSymbol('O');
+
+        // Create the game, with its own engine so games can be searched concurrently
+        // (hints get another one, so a hint never delays the computer's move)
+        Game game = new Game(player, computer, player.getBoardSize(), player.getWinLength(),
+                player.getLayers());
+        MoveEngine engine = createEngine(player.getBoardSize());
+
+        // Generate a unique game ID
+        int gameId = nextGameId.getAndIncrement();
+
+        // Store the game info; the computer has no client handler
+        GameInfo gameInfo = new GameInfo(gameId, game, handler, null, engine,
+                new GameActor(gameScheduler, MAILBOX_CAPACITY));
+        activeGames.put(gameId, gameInfo);
+
+        gameInfo.getActor().post(() -> {
+            handler.send(WireProtocol.MATCHED, gameId, 0, player.getSymbol(),
+                    "Playing against " + computer.getName());
+            System.out.println("Created game " + gameId + " between " +
+                    player.getName() + " and the computer");
+
+            game.start();
+            notifyPlayerTurn(gameInfo);
+        });
     }
 
     /**
@@ -213,64 +652,233 @@ public class GameServer {
      * @param row The row of the move
      * @param col The column of the move
      */
-    public void processMove(ClientHandler clientHandler, int gameId, int row, int col) {
+    public void processMove(ClientConnection clientHandler, int gameId, int row, int col) {
         // Get the game info
         GameInfo gameInfo = activeGames.get(gameId);
         if (gameInfo == null) {
-            clientHandler.sendMessage("ERROR:Game not found");
+            clientHandler.send(WireProtocol.ERROR, "Game not found");
             return;
         }
 
         // Get the player
         Player player = connectedPlayers.get(clientHandler);
         if (player == null) {
-            clientHandler.sendMessage("ERROR:Player not found");
+            clientHandler.send(WireProtocol.ERROR, "Player not found");
+            return;
+        }
+
+        // Reject moves off the board without queueing them (the board's dimensions never change)
+        if (!gameInfo.getGame().isOnBoard(row, col)) {
+            clientHandler.send(WireProtocol.ERROR, "Invalid move");
+            return;
+        }
+
+        // The game is only changed by its actor
+        if (!gameInfo.getActor().offer(() -> playMove(gameInfo, clientHandler, player, row, col))) {
+            clientHandler.send(WireProtocol.ERROR, "Game busy");
+        }
+    }
+
+    /**
+     * Plays a move from a player (game actor)
+     * @param gameInfo The game info
+     * @param clientHandler The client handler
+     * @param player The player making the move
+     * @param row The row of the move
+     * @param col The column of the move
+     */
+    private void playMove(GameInfo gameInfo, ClientConnection clientHandler, Player player, int row, int col) {
+        // The game may have ended while the move was queued
+        if (activeGames.get(gameInfo.getGameId()) != gameInfo) {
+            clientHandler.send(WireProtocol.ERROR, "Game not found");
             return;
         }
 
         // Check if it's this player's turn
         Game game = gameInfo.getGame();
         if (game.getCurrentPlayer() != player) {
-            clientHandler.sendMessage("ERROR:Not your turn");
+            clientHandler.send(WireProtocol.ERROR, "Not your turn");
             return;
         }
 
         // Process the move
-        Move move = new Move(row, col, player.getSymbol());
-        boolean moveSuccessful = game.makeMove(move);
+        if (!applyMove(gameInfo, player, row, col)) {
+            clientHandler.send(WireProtocol.ERROR, "Invalid move");
+        }
+    }
 
-        if (!moveSuccessful) {
-            clientHandler.sendMessage("ERROR:Invalid move");
+    /**
+     * Suggests a move to a player whose turn it is
+     * @param clientHandler The client handler
+     * @param gameId The game ID
+     */
+    public void processHint(ClientConnection clientHandler, int gameId) {
+        GameInfo gameInfo = activeGames.get(gameId);
+        if (gameInfo == null) {
+            clientHandler.send(WireProtocol.ERROR, "Game not found");
+            return;
+        }
+
+        Player player = connectedPlayers.get(clientHandler);
+        if (player == null || !gameInfo.getActor().offer(() -> suggestMove(gameInfo, clientHandler, player))) {
+            clientHandler.send(WireProtocol.ERROR, player == null ? "Not your turn" : "Game busy");
+        }
+    }
+
+    /**
+     * Searches for a hint on a copy of the board, so the game's actor is not held meanwhile (game actor)
+     * A game searches one hint at a time: a request made meanwhile waits for that search, and
+     * the hint is only sent if the position did not change during the search.
+     * @param gameInfo The game info
+     * @param clientHandler The client handler
+     * @param player The player asking for a hint
+     */
+    private void suggestMove(GameInfo gameInfo, ClientConnection clientHandler, Player player) {
+        Game game = gameInfo.getGame();
+        if (activeGames.get(gameInfo.getGameId()) != gameInfo || game.getCurrentPlayer() != player) {
+            clientHandler.send(WireProtocol.ERROR, "Not your turn");
+            return;
+        }
+        if (gameInfo.isHintPending()) {
+            // Only the latest request is kept
+            gameInfo.setQueuedHint(() -> suggestMove(gameInfo, clientHandler, player));
             return;
         }
 
+        // Hints have their own engine, since chooseMove searches one position at a time and the
+        // computer's move must not wait for a hint
+        MoveEngine hintEngine = gameInfo.getHintEngine();
+        if (hintEngine == null) {
+            hintEngine = createEngine(game.getGameBoard().getSize());
+            gameInfo.setHintEngine(hintEngine);
+        }
+
+        MoveEngine engine = hintEngine;
+        Board position = new Board(game.getGameBoard());
+        long version = position.getVersion();
+        gameInfo.setHintPending(true);
+        searchThreads.execute(() -> {
+            // The game may have ended while the search was queued
+            if (activeGames.get(gameInfo.getGameId()) != gameInfo) {
+                return;
+            }
+            Move move = engine.chooseMove(position, player.getSymbol());
+
+            gameInfo.getActor().post(() -> {
+                gameInfo.setHintPending(false);
+                Runnable queuedHint = gameInfo.takeQueuedHint();
+                if (activeGames.get(gameInfo.getGameId()) != gameInfo) {
+                    return;
+                }
+                if (game.getGameBoard().getVersion() == version) {
+                    // A request made during the search asked about the same position
+                    if (move != null) {
+                        clientHandler.send(WireProtocol.HINTED, move.getX(), move.getY(), (char) 0, null);
+                    }
+                } else if (queuedHint != null) {
+                    // The hint is stale, but the position was asked about again since
+                    queuedHint.run();
+                }
+            });
+        });
+    }
+
+    /**
+     * Applies a move to a game and notifies the players
+     * @param gameInfo The game info
+     * @param player The player making the move
+     * @param row The row of the move
+     * @param col The column of the move
+     * @return true if the move was valid, false otherwise
+     */
+    private boolean applyMove(GameInfo gameInfo, Player player, int row, int col) {
+        Game game = gameInfo.getGame();
+        boolean moveSuccessful = game.isOnBoard(row, col)
+                && game.makeMove(Move.pack(row, col, player.getSymbol()));
+
+        if (!moveSuccessful) {
+            return false;
+        }
+
         // Notify both players about the move
-        String moveMsg = "MOVE:" + row + ":" + col + ":" + player.getSymbol();
-        gameInfo.getHandler1().sendMessage(moveMsg);
-        gameInfo.getHandler2().sendMessage(moveMsg);
+        sendToPlayers(gameInfo, WireProtocol.MOVED, row, col, player.getSymbol(), null);
 
         // Check if the game is over
         if (game.getState() == Game.GameState.PLAYER_WON) {
             // Notify players about the win
             String winnerName = game.getWinner().getName();
-            gameInfo.getHandler1().sendMessage("GAME_OVER:WIN:" + winnerName);
-            gameInfo.getHandler2().sendMessage("GAME_OVER:WIN:" + winnerName);
+            sendToPlayers(gameInfo, WireProtocol.GAME_OVER, WireProtocol.GAME_WIN, 0, (char) 0, winnerName);
 
             // Remove the game
-            activeGames.remove(gameId);
+            activeGames.remove(gameInfo.getGameId());
+            gameInfo.getActor().stop();
+            recordGame(gameInfo);
 
         } else if (game.getState() == Game.GameState.TIE) {
             // Notify players about the tie
-            gameInfo.getHandler1().sendMessage("GAME_OVER:TIE");
-            gameInfo.getHandler2().sendMessage("GAME_OVER:TIE");
+            sendToPlayers(gameInfo, WireProtocol.GAME_OVER, WireProtocol.GAME_TIE, 0, (char) 0, null);
 
             // Remove the game
-            activeGames.remove(gameId);
+            activeGames.remove(gameInfo.getGameId());
+            gameInfo.getActor().stop();
+            recordGame(gameInfo);
 
         } else {
             // Notify whose turn it is now
             notifyPlayerTurn(gameInfo);
         }
+        return true;
+    }
+
+    /**
+     * Plays the computer's turn in a game against the computer (game actor)
+     * The engine searches a copy of the board on the search threads, and the chosen move is
+     * sent back to the game's actor, so the scheduler is not held while the computer thinks.
+     * @param gameInfo The game info
+     */
+    private void playComputerTurn(GameInfo gameInfo) {
+        Game game = gameInfo.getGame();
+        Player computer = game.getCurrentPlayer();
+        Board position = new Board(game.getGameBoard());
+
+        searchThreads.execute(() -> {
+            // The game may have ended while the search was queued
+            if (activeGames.get(gameInfo.getGameId()) != gameInfo) {
+                return;
+            }
+            MoveEngine engine = gameInfo.getEngine();
+            Move move = engine.chooseMove(position, computer.getSymbol());
+            if (LOG_SEARCHES && engine instanceof IterativeDeepeningSearch) {
+                System.out.println("Computer moved in game " + gameInfo.getGameId() + ": " +
+                        ((IterativeDeepeningSearch) engine).getLastReport());
+            }
+
+            gameInfo.getActor().post(() -> {
+                // The player may have disconnected while the computer was thinking
+                if (activeGames.get(gameInfo.getGameId()) != gameInfo) {
+                    return;
+                }
+                if (move == null || !applyMove(gameInfo, computer, move.getX(), move.getY())) {
+                    System.err.println("Computer failed to move in game " + gameInfo.getGameId());
+                }
+            });
+        });
+    }
+
+    /**
+     * Sends a message to every connected player of a game
+     * @param gameInfo The game info
+     * @param opcode The server opcode of WireProtocol
+     * @param first The first number field
+     * @param second The second number field
+     * @param symbol The symbol field
+     * @param text The text field
+     */
+    private void sendToPlayers(GameInfo gameInfo, int opcode, int first, int second, char symbol, String text) {
+        gameInfo.getHandler1().send(opcode, first, second, symbol, text);
+        if (gameInfo.getHandler2() != null) {
+            gameInfo.getHandler2().send(opcode, first, second, symbol, text);
+        }
     }
 
     /**
@@ -282,20 +890,27 @@ public class GameServer {
         Player currentPlayer = game.getCurrentPlayer();
 
         // Get the client handlers
-        ClientHandler handler1 = gameInfo.getHandler1();
-        ClientHandler handler2 = gameInfo.getHandler2();
-
-        // Get the players
-        Player player1 = connectedPlayers.get(handler1);
-        Player player2 = connectedPlayers.get(handler2);
+        ClientConnection handler1 = gameInfo.getHandler1();
+        ClientConnection handler2 = gameInfo.getHandler2();
+
+        // Against the computer, tell the player to wait and let the engine move
+        if (handler2 == null) {
+            if (currentPlayer.isHuman()) {
+                handler1.send(WireProtocol.YOUR_TURN);
+            } else {
+                handler1.send(WireProtocol.OPPONENT_TURN);
+                playComputerTurn(gameInfo);
+            }
+            return;
+        }
 
         // Send messages based on whose turn it is
-        if (currentPlayer == player1) {
-            handler1.sendMessage("YOUR_TURN");
-            handler2.sendMessage("OPPONENT_TURN");
+        if (currentPlayer == game.getPlayer1()) {
+            handler1.send(WireProtocol.YOUR_TURN);
+            handler2.send(WireProtocol.OPPONENT_TURN);
         } else {
-            handler1.sendMessage("OPPONENT_TURN");
-            handler2.sendMessage("YOUR_TURN");
+            handler1.send(WireProtocol.OPPONENT_TURN);
+            handler2.send(WireProtocol.YOUR_TURN);
         }
     }
 
@@ -303,12 +918,13 @@ public class GameServer {
      * Disconnects a client
      * @param clientHandler The client handler
      */
-    public void disconnectClient(ClientHandler clientHandler) {
+    public void disconnectClient(ClientConnection clientHandler) {
         // Get the player
         Player player = connectedPlayers.remove(clientHandler);
         if (player == null) {
             return;
         }
+        stopWaiting(clientHandler);
 
         System.out.println("Player disconnected: " + player.getName());
 
@@ -320,41 +936,49 @@ public class GameServer {
             if (game.getPlayer1() == player || game.getPlayer2() == player) {
                 int gameId = entry.getKey();
 
-                // Notify the other player
-                ClientHandler otherHandler = (gameInfo.getHandler1() == clientHandler) ?
-                        gameInfo.getHandler2() : gameInfo.getHandler1();
-
-                otherHandler.sendMessage("OPPONENT_DISCONNECTED");
-
-                // Remove the game
-                activeGames.remove(gameId);
-                System.out.println("Game " + gameId + " ended due to player disconnect");
+                // Stop the computer and any hint if they are thinking
+                gameInfo.cancelSearches();
+
+                // End the game on its actor, after any move already queued
+                gameInfo.getActor().post(() -> {
+                    if (!activeGames.remove(gameId, gameInfo)) {
+                        return; // Already over
+                    }
+                    gameInfo.getActor().stop();
+                    // Again, for a hint engine created after the first cancel
+                    gameInfo.cancelSearches();
+                    // Recorded as unfinished
+                    recordGame(gameInfo);
+
+                    // Notify the other player
+                    ClientConnection otherHandler = (gameInfo.getHandler1() == clientHandler) ?
+                            gameInfo.getHandler2() : gameInfo.getHandler1();
+
+                    if (otherHandler != null) {
+                        otherHandler.send(WireProtocol.OPPONENT_DISCONNECTED);
+                    }
+                    System.out.println("Game " + gameId + " ended due to player disconnect");
+                });
                 break;
             }
         }
     }
 
-    /**
-     * Checks if a player is in a game
-     * @param player The player to check
-     * @return true if the player is in a game, false otherwise
-     */
-    private boolean isPlayerInGame(Player player) {
-        for (GameInfo gameInfo : activeGames.values()) {
-            Game game = gameInfo.getGame();
-            if (game.getPlayer1() == player || game.getPlayer2() == player) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Stops the server
      */
     public void stop() {
         running = false;
 
+        if (nioTransport != null) {
+            nioTransport.stop();
+        }
+
+        // Interrupt all virtual client threads
+        if (virtualThreads != null) {
+            virtualThreads.shutdownNow();
+        }
+
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
@@ -371,12 +995,19 @@ public class GameServer {
             clientThreads.clear();
         }
 
-        // Interrupt all game threads
-        synchronized (gameThreads) {
-            for (Thread thread : gameThreads) {
-                thread.interrupt();
-            }
-            gameThreads.clear();
+        // Stop running games and searches
+        gameScheduler.shutdownNow();
+        searchThreads.shutdownNow();
+
+        // Let the game log take the records of the games that just ended
+        if (!recordWriter.isShutdown()) {
+            recordWriter.execute(this::closeRecordLog);
+            recordWriter.shutdown();
+        }
+        try {
+            recordWriter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
 
         System.out.println("Game server stopped");
@@ -388,23 +1019,57 @@ public class GameServer {
     private static class GameInfo {
         private final int gameId;
         private final Game game;
-        private final GameController controller;
-        private final ClientHandler handler1;
-        private final ClientHandler handler2;
+        private final ClientConnection handler1;
+        private final ClientConnection handler2;
+        // Engine for the computer's moves, null in a game between two players
+        private final MoveEngine engine;
+        private final GameActor actor;
+
+        // Engine for hints, created by the game's actor with the first hint
+        private volatile MoveEngine hintEngine;
+
+        // Set while a hint is searched, with the request made meanwhile (game actor only)
+        private boolean hintPending;
+        private Runnable queuedHint;
 
-        public GameInfo(int gameId, Game game, GameController controller,
-                        ClientHandler handler1, ClientHandler handler2) {
+        public GameInfo(int gameId, Game game, ClientConnection handler1, ClientConnection handler2,
+                        MoveEngine engine, GameActor actor) {
             this.gameId = gameId;
             this.game = game;
-            this.controller = controller;
             this.handler1 = handler1;
             this.handler2 = handler2;
+            this.engine = engine;
+            this.actor = actor;
         }
 
         public int getGameId() { return gameId; }
         public Game getGame() { return game; }
-        public GameController getController() { return controller; }
-        public ClientHandler getHandler1() { return handler1; }
-        public ClientHandler getHandler2() { return handler2; }
+        public ClientConnection getHandler1() { return handler1; }
+        public ClientConnection getHandler2() { return handler2; }
+        public MoveEngine getEngine() { return engine; }
+        public MoveEngine getHintEngine() { return hintEngine; }
+        public void setHintEngine(MoveEngine hintEngine) { this.hintEngine = hintEngine; }
+        public boolean isHintPending() { return hintPending; }
+        public void setHintPending(boolean hintPending) { this.hintPending = hintPending; }
+        public void setQueuedHint(Runnable queuedHint) { this.queuedHint = queuedHint; }
+        public Runnable takeQueuedHint() {
+            Runnable hint = queuedHint;
+            queuedHint = null;
+            return hint;
+        }
+        public GameActor getActor() { return actor; }
+
+        /**
+         * Cancels the searches of the game's engines, including those queued but not started
+         */
+        public void cancelSearches() {
+            if (engine != null) {
+                engine.cancel();
+            }
+            MoveEngine hints = hintEngine;
+            if (hints != null) {
+                hints.cancel();
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.example.demo;
+
+/**
+ * Move engine that runs an alpha-beta search to increasing depths until a hard deadline.
+ * After each completed depth the best move is kept, so a move is always ready when the
+ * deadline passes or the search is cancelled; an unfinished depth is discarded.
+ * Each depth also fills the transposition table, which orders the moves of the next one.
+ */
+public class IterativeDeepeningSearch implements MoveEngine {
+    private final AlphaBetaEngine engine;
+    private final long deadlineMillis;
+    private volatile boolean cancelled;
+    private volatile SearchReport lastReport;
+
+    /**
+     * Creates an iterative deepening search
+     * @param deadlineMillis Hard limit on the time spent per move, in milliseconds
+     */
+    public IterativeDeepeningSearch(long deadlineMillis) {
+        this.engine = new AlphaBetaEngine(deadlineMillis);
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Choose a move for the given symbol within the deadline
+     * @param board The current board (not modified)
+     * @param symbol The symbol of the player to move ('X' or 'O')
+     * @return The best move of the deepest completed search, or null if the board has no empty cell
+     */
+    @Override
+    public synchronized Move chooseMove(Board board, char symbol) {
+        long start = System.nanoTime();
+        long deadline = start + deadlineMillis * 1_000_000L;
+
+        Board work = new Board(board);
+        engine.prepare(work);
+        int size = work.getSize();
+        int player = symbol == 'X' ? 0 : 1;
+        int emptyCells = work.getCellCount() - work.getFilledCells();
+
+        int bestCell = -1;
+        int bestScore = 0;
+        int depthReached = 0;
+        long nodes = 0;
+        for (int depth = 1; depth <= emptyCells; depth++) {
+            int cell = engine.searchRoot(work, player, depth, deadline);
+            nodes += engine.getNodes();
+            if (bestCell < 0) {
+                bestCell = cell; // Anything is better than no move at all
+            }
+            if (engine.wasAborted()) {
+                break;
+            }
+
+            bestCell = cell;
+            bestScore = engine.getLastScore();
+            depthReached = depth;
+
+            // A forced result will not change with more depth
+            if (Math.abs(bestScore) > AlphaBetaEngine.WIN_THRESHOLD) {
+                break;
+            }
+        }
+
+        lastReport = new SearchReport(depthReached, nodes, System.nanoTime() - start, bestScore, cancelled);
+        if (bestCell < 0) {
+            return null;
+        }
+        return new Move(bestCell / size, bestCell % size, symbol);
+    }
+
+    /**
+     * Stop the search in progress, and any later one until newGame; it returns its best move so far
+     */
+    @Override
+    public void cancel() {
+        cancelled = true;
+        engine.cancel();
+    }
+
+    /**
+     * Clear the transposition table between games and allow searches again after a cancel
+     */
+    @Override
+    public synchronized void newGame() {
+        cancelled = false;
+        engine.newGame();
+    }
+
+    /**
+     * Get the statistics of the last move
+     * @return The last report, or null if no move has been searched yet
+     */
+    public SearchReport getLastReport() {
+        return lastReport;
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * LineTable holds the precomputed winning lines for a board size and win length.
+ * A line is any window of winLength consecutive cells along a row, a column or a diagonal;
+ * with the standard rules (winLength equal to the size) these are just the rows, columns
+ * and the two main diagonals. A cell lies on at most 4 * winLength windows, so keeping a
+ * counter per window makes win detection around the last move O(winLength) on any board.
+ * Cube boards (size layers of size x size cells, cell index (layer * size + row) * size + column)
+ * have windows along all 13 directions of the cube: 76 lines for 4x4x4.
+ * Each line is stored both as a list of cell indices and, for boards of up to 64 cells
+ * (8x8 or 4x4x4), as a bitmask so that a win can be detected with a single AND/compare.
+ * Tables are immutable and shared between all boards with the same rules.
+ */
+public final class LineTable {
+    /**
+     * Largest board size whose cells fit into a single long bitmask
+     */
+    public static final int MAX_BITBOARD_SIZE = 8;
+
+    // Directions (layer, row, column) of the lines in a cube, one of each opposite pair
+    private static final int[][] CUBE_DIRECTIONS = {
+            {0, 0, 1}, {0, 1, 0}, {0, 1, 1}, {0, 1, -1},
+            {1, 0, 0}, {1, 0, 1}, {1, 0, -1}, {1, 1, 0}, {1, -1, 0},
+            {1, 1, 1}, {1, 1, -1}, {1, -1, 1}, {1, -1, -1}
+    };
+
+    private static final Map<Integer, LineTable> CACHE = new ConcurrentHashMap<>();
+
+    private final int size;
+    private final int winLength;
+    private final int layers;
+    private final int[][] lineCells;
+    private final int[][] cellLines;
+    private final long[] lineMasks;
+
+    /**
+     * Get the shared line table for the standard rules, where a full row, column or diagonal wins
+     * @param size Size of the board (e.g., 3 for a 3x3 board)
+     * @return The line table for that size
+     */
+    public static LineTable forSize(int size) {
+        return forRules(size, size);
+    }
+
+    /**
+     * Get the shared line table for a board size and win length
+     * @param size Size of the board (e.g., 15 for a 15x15 board)
+     * @param winLength Number of symbols in a row needed to win (1 to size)
+     * @return The line table for those rules
+     */
+    public static LineTable forRules(int size, int winLength) {
+        return forShape(size, winLength, 1);
+    }
+
+    /**
+     * Get the shared line table for a flat board or a cube
+     * @param size Size of the board along each side
+     * @param winLength Number of symbols in a row needed to win (1 to size)
+     * @param layers 1 for a flat board, size for a cube
+     * @return The line table for that shape and win length
+     */
+    public static LineTable forShape(int size, int winLength, int layers) {
+        if (winLength < 1 || winLength > size) {
+            throw new IllegalArgumentException("Win length must be between 1 and " + size + ": " + winLength);
+        }
+        if (layers != 1 && layers != size) {
+            throw new IllegalArgumentException("A board has 1 layer or is a cube: " + layers + " layers");
+        }
+        return CACHE.computeIfAbsent((size << 16 | winLength) << 1 | (layers > 1 ? 1 : 0),
+                key -> new LineTable(size, winLength, layers));
+    }
+
+    /**
+     * Builds the table of windows along every line direction of the board
+     * @param size Size of the board
+     * @param winLength Length of a window
+     * @param layers 1 for a flat board, size for a cube
+     */
+    private LineTable(int size, int winLength, int layers) {
+        this.size = size;
+        this.winLength = winLength;
+        this.layers = layers;
+        int cellCount = layers * size * size;
+        this.lineCells = layers == 1 ? flatLines(size, winLength) : cubeLines(size, winLength);
+        int lineCount = lineCells.length;
+
+        // Invert the table so each cell knows which lines pass through it
+        int[] counts = new int[cellCount];
+        for (int[] cells : lineCells) {
+            for (int cell : cells) {
+                counts[cell]++;
+            }
+        }
+        this.cellLines = new int[cellCount][];
+        for (int cell = 0; cell < cellCount; cell++) {
+            cellLines[cell] = new int[counts[cell]];
+            counts[cell] = 0;
+        }
+        for (int l = 0; l < lineCount; l++) {
+            for (int cell : lineCells[l]) {
+                cellLines[cell][counts[cell]++] = l;
+            }
+        }
+
+        // Bitmasks are only available when every cell fits into a long
+        if (cellCount <= 64) {
+            this.lineMasks = new long[lineCount];
+            for (int l = 0; l < lineCount; l++) {
+                for (int cell : lineCells[l]) {
+                    lineMasks[l] |= 1L << cell;
+                }
+            }
+        } else {
+            this.lineMasks = null;
+        }
+    }
+
+    /**
+     * Build the windows of a flat board along rows, columns and both diagonal directions
+     */
+    private static int[][] flatLines(int size, int winLength) {
+        // Windows per row or column, and per diagonal direction
+        int span = size - winLength + 1;
+        int lineCount = 2 * size * span + 2 * span * span;
+        int[][] lineCells = new int[lineCount][winLength];
+        int line = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < span; col++, line++) {
+                for (int i = 0; i < winLength; i++) {
+                    lineCells[line][i] = row * size + col + i;
+                }
+            }
+        }
+        for (int col = 0; col < size; col++) {
+            for (int row = 0; row < span; row++, line++) {
+                for (int i = 0; i < winLength; i++) {
+                    lineCells[line][i] = (row + i) * size + col;
+                }
+            }
+        }
+        for (int row = 0; row < span; row++) {
+            for (int col = 0; col < span; col++, line++) {
+                for (int i = 0; i < winLength; i++) {
+                    lineCells[line][i] = (row + i) * size + col + i;
+                }
+            }
+        }
+        for (int row = 0; row < span; row++) {
+            for (int col = winLength - 1; col < size; col++, line++) {
+                for (int i = 0; i < winLength; i++) {
+                    lineCells[line][i] = (row + i) * size + col - i;
+                }
+            }
+        }
+        return lineCells;
+    }
+
+    /**
+     * Build the windows of a cube: every run of winLength cells along one of the 13 directions
+     */
+    private static int[][] cubeLines(int size, int winLength) {
+        List<int[]> lines = new ArrayList<>();
+        for (int[] direction : CUBE_DIRECTIONS) {
+            for (int layer = 0; layer < size; layer++) {
+                for (int row = 0; row < size; row++) {
+                    for (int col = 0; col < size; col++) {
+                        // Keep the window if its last cell is still inside the cube
+                        int lastLayer = layer + direction[0] * (winLength - 1);
+                        int lastRow = row + direction[1] * (winLength - 1);
+                        int lastCol = col + direction[2] * (winLength - 1);
+                        if (lastLayer < 0 || lastLayer >= size || lastRow < 0 || lastRow >= size
+                                || lastCol < 0 || lastCol >= size) {
+                            continue;
+                        }
+                        int[] cells = new int[winLength];
+                        for (int i = 0; i < winLength; i++) {
+                            cells[i] = ((layer + direction[0] * i) * size + row + direction[1] * i) * size
+                                    + col + direction[2] * i;
+                        }
+                        lines.add(cells);
+                    }
+                }
+            }
+        }
+        return lines.toArray(new int[0][]);
+    }
+
+    /**
+     * Check if boards of this size can be stored as bitmasks
+     * @return true if every cell fits into a single long
+     */
+    public boolean supportsBitboards() {
+        return lineMasks != null;
+    }
+
+    /**
+     * Check if a bitmask of stones contains a complete line through a cell
+     * @param stones Bitmask of one player's stones
+     * @param cell The cell of the last move
+     * @return true if one of the lines through the cell is complete
+     */
+    public boolean hasLineThrough(long stones, int cell) {
+        for (int line : cellLines[cell]) {
+            long mask = lineMasks[line];
+            if ((stones & mask) == mask) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the size of the board this table describes
+     * @return The board size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of layers of the board this table describes
+     * @return 1 for a flat board, the size for a cube
+     */
+    public int getLayers() {
+        return layers;
+    }
+
+    /**
+     * Get the number of symbols in a row needed to win
+     * @return The length of every line
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Get the number of winning lines
+     * @return The number of lines
+     */
+    public int getLineCount() {
+        return lineCells.length;
+    }
+
+    /**
+     * Get the cells of a line
+     * @param line Line index
+     * @return The cell indices of the line (must not be modified)
+     */
+    public int[] getLineCells(int line) {
+        return lineCells[line];
+    }
+
+    /**
+     * Get the lines passing through a cell
+     * @param cell Cell index (row * size + column)
+     * @return The line indices through the cell (must not be modified)
+     */
+    public int[] getCellLines(int cell) {
+        return cellLines[cell];
+    }
+}
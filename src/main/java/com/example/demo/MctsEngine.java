@@ -0,0 +1,379 @@
+package com.example.demo;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Move engine based on Monte Carlo Tree Search.
+ * Until the time budget expires, each iteration walks down the tree by UCT, expands a leaf,
+ * plays a random game to the end and credits the result back along the path.
+ * The move with the most visits is returned.
+ *
+ * Searches use root parallelism: every worker grows its own tree from the same position,
+ * and the root visit counts are added together at the end. Trees are stored in primitive
+ * arrays and playouts run on a private board with make/undo, so the search loop allocates
+ * nothing once the trees have been created.
+ */
+public class MctsEngine implements MoveEngine {
+    private static final double EXPLORATION = 1.4;
+    private static final int DEFAULT_TREE_CAPACITY = 1 << 18;
+
+    // Node results, from the point of view of the player who moved into the node
+    private static final byte UNKNOWN = -2;
+    private static final byte CONTINUES = -1;
+    private static final byte TIE = 0;
+    private static final byte WIN = 1;
+
+    private final ForkJoinPool pool;
+    private final long timeBudgetMillis;
+    private final int workers;
+    private final long seed;
+    private final int treeCapacity;
+    private Tree[] trees;
+    private long lastPlayouts;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates an engine using every core of the common fork/join pool
+     * @param timeBudgetMillis Time to spend on a move, in milliseconds
+     */
+    public MctsEngine(long timeBudgetMillis) {
+        this(ForkJoinPool.commonPool(), timeBudgetMillis, ForkJoinPool.commonPool().getParallelism(),
+                System.nanoTime(), DEFAULT_TREE_CAPACITY);
+    }
+
+    /**
+     * Creates an engine
+     * @param pool Pool whose workers grow the trees
+     * @param timeBudgetMillis Time to spend on a move, in milliseconds
+     * @param workers Number of independent trees searched in parallel
+     * @param seed Seed for the random playouts
+     * @param treeCapacity Maximum number of nodes per tree
+     */
+    public MctsEngine(ForkJoinPool pool, long timeBudgetMillis, int workers, long seed, int treeCapacity) {
+        this.pool = pool;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.workers = Math.max(1, workers);
+        this.seed = seed;
+        this.treeCapacity = treeCapacity;
+    }
+
+    /**
+     * Choose a move for the given symbol
+     * @param board The current board (not modified)
+     * @param symbol The symbol of the player to move ('X' or 'O')
+     * @return The most visited move, or null if the board has no empty cell
+     */
+    @Override
+    public synchronized Move chooseMove(Board board, char symbol) {
+        int size = board.getSize();
+        int cellCount = board.getCellCount();
+        if (board.getFilledCells() == cellCount) {
+            return null;
+        }
+
+        if (trees == null) {
+            trees = new Tree[workers];
+            for (int i = 0; i < workers; i++) {
+                trees[i] = new Tree(treeCapacity, seed + i);
+            }
+        }
+
+        long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        RecursiveAction[] tasks = new RecursiveAction[workers];
+        for (int i = 0; i < workers; i++) {
+            Tree tree = trees[i];
+            tree.reset(board, symbol == 'X' ? 0 : 1);
+            tasks[i] = new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    tree.search(deadline, MctsEngine.this);
+                }
+            };
+        }
+        if (workers == 1) {
+            tasks[0].invoke();
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+
+        // Add up the root visits of every tree
+        long[] visits = new long[cellCount];
+        long playouts = 0;
+        for (Tree tree : trees) {
+            tree.addRootVisits(visits);
+            playouts += tree.playouts;
+        }
+        lastPlayouts = playouts;
+
+        int bestCell = -1;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (board.isEmpty(cell)
+                    && (bestCell < 0 || visits[cell] > visits[bestCell])) {
+                bestCell = cell;
+            }
+        }
+        return new Move(bestCell / size, bestCell % size, symbol);
+    }
+
+    /**
+     * Stop the search in progress, and any later one until newGame; the most visited move so far is returned
+     */
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Allow searches again after a cancel; the trees are rebuilt for every move, so nothing else is kept
+     */
+    @Override
+    public void newGame() {
+        cancelled = false;
+    }
+
+    /**
+     * Get the number of playouts run by the last search
+     * @return Playouts summed over all trees
+     */
+    public long getLastPlayouts() {
+        return lastPlayouts;
+    }
+
+    /**
+     * A search tree grown by one worker, stored in parallel arrays
+     */
+    private static final class Tree {
+        private final int capacity;
+        private final SplittableRandom random;
+
+        // Node storage; node 0 is the root
+        private final int[] firstChild;
+        private final short[] childCount;
+        private final short[] cell;
+        private final byte[] result;
+        private final int[] visits;
+        private final int[] reward; // 2 per win and 1 per tie for the player who moved into the node
+
+        private int nodeCount;
+        private long playouts;
+
+        // Playout state, sized for the current board
+        private Board board;
+        private int cellCount;
+        private int rootPlayer;
+        private int[] path;
+        private int[] undoCells;
+        private int[] emptyCells;
+
+        Tree(int capacity, long seed) {
+            this.capacity = capacity;
+            this.random = new SplittableRandom(seed);
+            this.firstChild = new int[capacity];
+            this.childCount = new short[capacity];
+            this.cell = new short[capacity];
+            this.result = new byte[capacity];
+            this.visits = new int[capacity];
+            this.reward = new int[capacity];
+        }
+
+        /**
+         * Start a new tree for a position
+         */
+        void reset(Board position, int player) {
+            board = new Board(position);
+            if (cellCount != position.getCellCount()) {
+                cellCount = position.getCellCount();
+                path = new int[cellCount + 1];
+                undoCells = new int[cellCount];
+                emptyCells = new int[cellCount];
+            }
+            rootPlayer = player;
+            nodeCount = 1;
+            playouts = 0;
+            firstChild[0] = 0;
+            childCount[0] = 0;
+            result[0] = CONTINUES;
+            visits[0] = 0;
+            reward[0] = 0;
+        }
+
+        /**
+         * Run iterations until the deadline or until the engine is cancelled
+         */
+        void search(long deadline, MctsEngine engine) {
+            do {
+                // Check the clock every 64 iterations
+                for (int i = 0; i < 64; i++) {
+                    iterate();
+                }
+            } while (System.nanoTime() < deadline && !engine.cancelled);
+        }
+
+        /**
+         * Run one selection, expansion, playout and backpropagation step
+         */
+        private void iterate() {
+            int depth = 0;
+            int moves = 0;
+            int node = 0;
+            int player = rootPlayer;
+            path[depth++] = node;
+
+            // Selection: descend through expanded nodes
+            while (childCount[node] > 0 && result[node] == CONTINUES) {
+                node = selectChild(node);
+                play(cell[node], player, node);
+                undoCells[moves++] = cell[node];
+                path[depth++] = node;
+                player = 1 - player;
+            }
+
+            // Expansion: add the children of a visited leaf
+            if (result[node] == CONTINUES && (visits[node] > 0 || node == 0) && expand(node)) {
+                node = selectChild(node);
+                play(cell[node], player, node);
+                undoCells[moves++] = cell[node];
+                path[depth++] = node;
+                player = 1 - player;
+            }
+
+            // Playout: random moves to the end of the game
+            int winner; // 0 or 1, or -1 for a tie
+            if (result[node] == WIN) {
+                winner = 1 - player;
+            } else if (result[node] == TIE) {
+                winner = -1;
+            } else {
+                int emptyCount = 0;
+                for (int c = 0; c < cellCount; c++) {
+                    if (board.isEmpty(c)) {
+                        emptyCells[emptyCount++] = c;
+                    }
+                }
+                winner = -1;
+                while (emptyCount > 0) {
+                    int pick = random.nextInt(emptyCount);
+                    int c = emptyCells[pick];
+                    emptyCells[pick] = emptyCells[--emptyCount];
+                    int outcome = board.play(c, player == 0 ? 'X' : 'O');
+                    undoCells[moves++] = c;
+                    if (outcome == 1) {
+                        winner = player;
+                        break;
+                    }
+                    if (outcome == 0 || board.isDeadDraw()) {
+                        break; // Nobody can win any more
+                    }
+                    player = 1 - player;
+                }
+            }
+            playouts++;
+
+            // Backpropagation: credit each node to the player who moved into it
+            int mover = rootPlayer;
+            visits[0]++;
+            for (int i = 1; i < depth; i++) {
+                int n = path[i];
+                visits[n]++;
+                if (winner == mover) {
+                    reward[n] += 2;
+                } else if (winner == -1) {
+                    reward[n] += 1;
+                }
+                mover = 1 - mover;
+            }
+
+            // Restore the root position
+            while (moves > 0) {
+                int c = undoCells[--moves];
+                board.unplay(c);
+            }
+        }
+
+        /**
+         * Play a node's move on the board, recording whether it ended the game
+         */
+        private void play(int c, int player, int node) {
+            int outcome = board.play(c, player == 0 ? 'X' : 'O');
+            if (result[node] == UNKNOWN) {
+                if (outcome == 1) {
+                    result[node] = WIN;
+                } else if (outcome == 0 || board.isDeadDraw()) {
+                    result[node] = TIE;
+                } else {
+                    result[node] = CONTINUES;
+                }
+            }
+        }
+
+        /**
+         * Create a child for every empty cell
+         * @return false if the tree is full
+         */
+        private boolean expand(int node) {
+            int empty = cellCount - board.getFilledCells();
+            if (nodeCount + empty > capacity) {
+                return false;
+            }
+            firstChild[node] = nodeCount;
+            for (int c = 0; c < cellCount; c++) {
+                if (board.isEmpty(c)) {
+                    int child = nodeCount++;
+                    cell[child] = (short) c;
+                    firstChild[child] = 0;
+                    childCount[child] = 0;
+                    result[child] = UNKNOWN;
+                    visits[child] = 0;
+                    reward[child] = 0;
+                }
+            }
+            childCount[node] = (short) empty;
+            return true;
+        }
+
+        /**
+         * Pick the child with the highest UCT value, trying unvisited children first
+         */
+        private int selectChild(int node) {
+            int first = firstChild[node];
+            int end = first + childCount[node];
+            double logVisits = Math.log(Math.max(1, visits[node]));
+            int best = first;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < end; child++) {
+                if (visits[child] == 0) {
+                    return child;
+                }
+                // A move that wins immediately is always taken
+                if (result[child] == WIN) {
+                    return child;
+                }
+                double value = reward[child] / (2.0 * visits[child])
+                        + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Add the visit counts of the root's children, indexed by cell
+         */
+        void addRootVisits(long[] totals) {
+            int first = firstChild[0];
+            int end = first + childCount[0];
+            for (int child = first; child < end; child++) {
+                totals[cell[child]] += visits[child];
+            }
+        }
+    }
+}
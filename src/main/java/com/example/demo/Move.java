@@ -3,8 +3,15 @@ package com.example.demo;
 /**
  * Move class represents a single move in a Tic-Tac-Toe game.
  * This class is part of the Model in the MVC pattern.
+ * Hot paths pass moves as a packed int instead (symbol in the high 16 bits, then
+ * 8 bits each for row and column); the static helpers below convert between the two.
  */
 public class Move {
+    /**
+     * Packed value meaning "no move"
+     */
+    public static final int NONE = -1;
+
     private int x;
     private int y;
     private char symbol;
@@ -69,6 +76,71 @@ public class Move {
         this.symbol = symbol;
     }
 
+    /**
+     * Pack this move into an int
+     * @return The packed move
+     */
+    public int pack() {
+        return pack(x, y, symbol);
+    }
+
+    /**
+     * Pack a move into an int
+     * @param x Row index (0 to 255)
+     * @param y Column index (0 to 255)
+     * @param symbol Player's symbol ('X' or 'O'), or 0 if not yet known
+     * @return The packed move
+     */
+    public static int pack(int x, int y, char symbol) {
+        return symbol << 16 | (x & 0xFF) << 8 | (y & 0xFF);
+    }
+
+    /**
+     * Get the row index of a packed move
+     * @param packed The packed move
+     * @return Row index
+     */
+    public static int packedX(int packed) {
+        return (packed >>> 8) & 0xFF;
+    }
+
+    /**
+     * Get the column index of a packed move
+     * @param packed The packed move
+     * @return Column index
+     */
+    public static int packedY(int packed) {
+        return packed & 0xFF;
+    }
+
+    /**
+     * Get the symbol of a packed move
+     * @param packed The packed move
+     * @return Player's symbol
+     */
+    public static char packedSymbol(int packed) {
+        return (char) (packed >>> 16);
+    }
+
+    /**
+     * Replace the symbol of a packed move
+     * @param packed The packed move
+     * @param symbol Player's symbol
+     * @return The packed move with the new symbol
+     */
+    public static int withSymbol(int packed, char symbol) {
+        return symbol << 16 | (packed & 0xFFFF);
+    }
+
+    /**
+     * Create a Move object from a packed move
+     * @param packed The packed move
+     * @return A new Move
+     */
+    public static Move unpack(int packed) {
+        return new Move(packedX(packed), packedY(packed), packedSymbol(packed));
+    }
+
     /**
      * String representation of the move
      * @return String in format "(row,col):symbol"
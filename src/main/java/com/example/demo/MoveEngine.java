@@ -0,0 +1,30 @@
+package com.example.demo;
+
+/**
+ * Interface for engines that choose moves for computer-controlled players.
+ * Engines never modify the board they are given.
+ */
+public interface MoveEngine {
+    /**
+     * Choose a move for the given symbol
+     * @param board The current board (not modified)
+     * @param symbol The symbol of the player to move ('X' or 'O')
+     * @return The chosen move, or null if the board has no empty cell
+     */
+    Move chooseMove(Board board, char symbol);
+
+    /**
+     * Stop a search in progress, making chooseMove return its best move so far
+     * The cancel also holds for searches started later, until newGame, so it cannot be lost
+     * when it comes before a queued search. Engines that cannot be interrupted ignore this.
+     */
+    default void cancel() {
+    }
+
+    /**
+     * Forget everything learned from earlier positions, so the next game is played
+     * as if by a new engine. Engines without such state ignore this.
+     */
+    default void newGame() {
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo;
+
+/**
+ * Interface for precomputed tables that know the best move of the positions they cover.
+ */
+public interface MoveLookup {
+    /**
+     * Look up a move that keeps the best possible result
+     * @param board The position ('X' is assumed to have moved first)
+     * @param symbol The symbol of the player to move
+     * @return The best cell (row * size + column), or -1 if the position is not covered
+     */
+    int bestMove(Board board, char symbol);
+}
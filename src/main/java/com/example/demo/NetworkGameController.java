@@ -41,6 +41,19 @@ public class NetworkGameController {
         return true;
     }
 
+    /**
+     * Ask the server to suggest a move
+     * @return true if the request was sent, false otherwise
+     */
+    public boolean requestHint() {
+        if (!client.isConnected()) {
+            return false;
+        }
+
+        client.requestHint();
+        return true;
+    }
+
     /**
      * Check if the client is connected to the server
      * @return true if connected, false otherwise
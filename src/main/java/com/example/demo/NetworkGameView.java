@@ -18,6 +18,7 @@ public class NetworkGameView {
     private GridPane boardGrid;
     private Button[][] buttons;
     private Label statusLabel;
+    private Button hintButton;
     private int boardSize;
     private Player player;
     private GameClient client;
@@ -95,13 +96,23 @@ public class NetworkGameView {
             }
         }
 
-        // Create a VBox to hold the grid and status label
+        // Create the hint button, only usable on our turn
+        hintButton = new Button("Hint");
+        hintButton.setFocusTraversable(false);
+        hintButton.setDisable(true);
+        hintButton.setOnAction(event -> {
+            if (myTurn) {
+                controller.requestHint();
+            }
+        });
+
+        // Create a VBox to hold the grid, status label and hint button
         VBox layout = new VBox(10);
-        layout.getChildren().addAll(boardGrid, statusLabel);
+        layout.getChildren().addAll(boardGrid, statusLabel, hintButton);
         layout.setAlignment(Pos.CENTER);
 
         // Set the scene
-        Scene scene = new Scene(layout, 50 * boardSize + 40, 50 * boardSize + 80);
+        Scene scene = new Scene(layout, 50 * boardSize + 40, 50 * boardSize + 120);
         stage.setScene(scene);
 
         // Handle close event
@@ -150,6 +161,7 @@ public class NetworkGameView {
                 }
             }
         }
+        hintButton.setDisable(!enable);
     }
 
     /**
@@ -216,6 +228,17 @@ public class NetworkGameView {
         updateBoard(row, col, symbol);
     }
 
+    /**
+     * Handle a suggested move
+     * @param row Row of the suggested move
+     * @param col Column of the suggested move
+     */
+    public void handleHint(int row, int col) {
+        if (myTurn) {
+            statusLabel.setText("Your turn! Hint: row " + (row + 1) + ", column " + (col + 1));
+        }
+    }
+
     /**
      * Handle your turn notification
      */
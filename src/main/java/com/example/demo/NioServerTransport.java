@@ -0,0 +1,572 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Non-blocking transport for the GameServer, speaking the same protocol as ClientHandler:
+ * text lines, or WireProtocol frames once a client asked for them at registration.
+ *
+ * An acceptor thread hands new connections round-robin to a few event loops, each running
+ * a Selector over its share of the sockets, so an idle player costs a registered channel
+ * and a few small objects instead of a thread and its stack. Event loops read into one
+ * direct buffer per loop and only keep bytes per connection for a line that arrived in
+ * pieces. Outgoing messages are queued by any thread and written by the connection's
+ * event loop; a connection borrows a direct buffer from a shared pool only while it has
+ * unsent bytes. A client that does not read what it is sent is not read from either until
+ * its socket takes bytes again, and is closed if more than MAX_QUEUED_BYTES pile up for it.
+ *
+ * Complete lines are processed on a worker pool, one at a time per connection and in
+ * order, so a computer move or a hint that searches for a while never stalls the loops.
+ */
+public class NioServerTransport {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 1024;
+    private static final int ACCEPT_BACKLOG = 4096;
+
+    /**
+     * Most bytes queued for a client and not yet written; a client exceeding it is closed
+     */
+    public static final int MAX_QUEUED_BYTES = 64 * 1024;
+
+    /**
+     * Longest line accepted from a client, without its terminator; longer lines close the connection
+     */
+    public static final int MAX_LINE_LENGTH = CommandParser.MAX_LINE_LENGTH;
+
+    // Bytes kept for a line before its '\n': the line and the '\r' of a \r\n terminator
+    private static final int MAX_LINE_BYTES = MAX_LINE_LENGTH + 1;
+
+    private final GameServer gameServer;
+    private final int port;
+    private final EventLoop[] loops;
+    private final ExecutorService workers;
+    private final Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    /**
+     * Creates a transport
+     * @param gameServer The server that processes the messages
+     * @param port Port to listen on
+     * @param eventLoops Number of selector threads
+     * @param workerThreads Number of threads processing messages
+     */
+    public NioServerTransport(GameServer gameServer, int port, int eventLoops, int workerThreads) {
+        this.gameServer = gameServer;
+        this.port = port;
+        this.loops = new EventLoop[Math.max(1, eventLoops)];
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads));
+    }
+
+    /**
+     * Binds the port and starts the acceptor and event loop threads
+     * @throws IOException If the port cannot be bound
+     */
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        running = true;
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop();
+            Thread thread = new Thread(loops[i], "nio-loop-" + i);
+            thread.start();
+        }
+        Thread acceptThread = new Thread(this::acceptConnections, "nio-accept");
+        acceptThread.start();
+    }
+
+    /**
+     * Accepts connections (blocking) and spreads them over the event loops
+     */
+    private void acceptConnections() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Error accepting connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting, closes every connection and stops the threads
+     */
+    public void stop() {
+        running = false;
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing server channel: " + e.getMessage());
+        }
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                loop.shutdown();
+            }
+        }
+        workers.shutdownNow();
+    }
+
+    /**
+     * Get the number of open connections
+     * @return Connections registered with the event loops
+     */
+    public int getConnectionCount() {
+        int count = 0;
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                count += loop.selector.keys().size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Take a direct buffer from the pool, allocating one if the pool is empty
+     */
+    private ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = bufferPool.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * Return a buffer to the pool
+     */
+    private void releaseBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        if (bufferPool.size() < MAX_POOLED_BUFFERS) {
+            bufferPool.offer(buffer);
+        }
+    }
+
+    /**
+     * One selector thread and the connections registered with it
+     */
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final ByteBuffer readBuffer;
+        private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+        private final Queue<NioConnection> flushes = new ConcurrentLinkedQueue<>();
+
+        EventLoop() throws IOException {
+            this.selector = Selector.open();
+            this.readBuffer = acquireBuffer();
+        }
+
+        /**
+         * Hand a new connection to this loop (called by the acceptor)
+         */
+        void register(SocketChannel channel) {
+            registrations.add(channel);
+            selector.wakeup();
+        }
+
+        /**
+         * Ask this loop to write a connection's queued messages
+         */
+        void requestFlush(NioConnection connection) {
+            flushes.add(connection);
+            selector.wakeup();
+        }
+
+        /**
+         * Wake the loop so it sees that the transport stopped and closes its connections
+         */
+        void shutdown() {
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+
+                    SocketChannel channel;
+                    while ((channel = registrations.poll()) != null) {
+                        try {
+                            NioConnection connection = new NioConnection(this, channel);
+                            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                        } catch (IOException e) {
+                            System.err.println("Error registering connection: " + e.getMessage());
+                        }
+                    }
+
+                    NioConnection pending;
+                    while ((pending = flushes.poll()) != null) {
+                        pending.flush();
+                    }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        NioConnection connection = (NioConnection) key.attachment();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isReadable()) {
+                            connection.read(readBuffer);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) {
+                    System.err.println("Event loop stopped: " + e.getMessage());
+                }
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((NioConnection) key.attachment()).close();
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing selector: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A client connected through an event loop
+     */
+    private final class NioConnection implements ClientConnection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final String address;
+        private SelectionKey key;
+
+        // Start of a line that arrived in pieces (event loop only)
+        private byte[] partial;
+        private int partialLength;
+
+        // Outgoing messages, queued by any thread and written by the event loop
+        private final Queue<byte[]> outbox = new ConcurrentLinkedQueue<>();
+        // Held while a message is encoded and queued, and while switching to frames
+        private final ReentrantLock sendLock = new ReentrantLock();
+        private final AtomicBoolean flushRequested = new AtomicBoolean();
+        // Bytes in the outbox, and whether a message was refused for going over MAX_QUEUED_BYTES
+        private final AtomicInteger queuedBytes = new AtomicInteger();
+        private volatile boolean overflowed;
+        private ByteBuffer writeBuffer;
+        private byte[] current;
+        private int currentOffset;
+
+        // Set once the client registered for binary frames
+        private volatile boolean binaryIn;
+        private volatile boolean binaryOut;
+
+        // Received lines (byte[]) and frames (ByteBuffer), processed one at a time on the worker pool
+        private final Queue<Object> inbox = new ConcurrentLinkedQueue<>();
+        // Decodes the lines (worker pool only); created with the first line
+        private CommandParser parser;
+        private final AtomicBoolean processing = new AtomicBoolean();
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        NioConnection(EventLoop loop, SocketChannel channel) throws IOException {
+            this.loop = loop;
+            this.channel = channel;
+            this.address = ((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress();
+        }
+
+        /**
+         * Read what the socket has and queue every complete line (event loop only)
+         */
+        void read(ByteBuffer buffer) {
+            int count;
+            try {
+                buffer.clear();
+                count = channel.read(buffer);
+            } catch (IOException e) {
+                count = -1;
+            }
+            if (count < 0) {
+                close();
+                return;
+            }
+            if (binaryIn) {
+                readFrames(buffer, count);
+                return;
+            }
+
+            int lineStart = 0;
+            for (int i = 0; i < count; i++) {
+                if (buffer.get(i) == '\n') {
+                    if (!appendPartial(buffer, lineStart, i) || !endLine()) {
+                        return;
+                    }
+                    inbox.add(Arrays.copyOf(partial, partialLength));
+                    partialLength = 0;
+                    lineStart = i + 1;
+                }
+            }
+            if (!appendPartial(buffer, lineStart, count)) {
+                return;
+            }
+            if (partialLength == 0) {
+                partial = null; // Do not hold memory for idle connections
+            }
+            scheduleProcessing();
+        }
+
+        /**
+         * Queue every complete frame of the bytes read (event loop only)
+         */
+        private void readFrames(ByteBuffer buffer, int count) {
+            // Room for the longest frame and its length prefix, so a full buffer always holds a frame
+            if (partial == null || partial.length < WireProtocol.MAX_FRAME_LENGTH + 5) {
+                byte[] grown = new byte[WireProtocol.MAX_FRAME_LENGTH + 5];
+                if (partial != null) {
+                    System.arraycopy(partial, 0, grown, 0, partialLength);
+                }
+                partial = grown;
+            }
+            int offset = 0;
+            try {
+                while (offset < count) {
+                    int length = Math.min(count - offset, partial.length - partialLength);
+                    buffer.get(offset, partial, partialLength, length);
+                    partialLength += length;
+                    offset += length;
+
+                    int start = 0;
+                    int found;
+                    while ((found = WireProtocol.findFrame(partial, start, partialLength)) >= 0) {
+                        int frameStart = start + (found >>> 16);
+                        int frameLength = found & 0xFFFF;
+                        inbox.add(ByteBuffer.wrap(Arrays.copyOfRange(partial, frameStart, frameStart + frameLength)));
+                        start = frameStart + frameLength;
+                    }
+                    System.arraycopy(partial, start, partial, 0, partialLength - start);
+                    partialLength -= start;
+                }
+            } catch (IOException e) {
+                System.err.println("Bad frame from " + address + ", closing connection: " + e.getMessage());
+                close();
+                return;
+            }
+            if (partialLength == 0) {
+                partial = null; // Do not hold memory for idle connections
+            }
+            scheduleProcessing();
+        }
+
+        /**
+         * Append bytes of the read buffer to the current line
+         * @return false if the line is too long and the connection was closed
+         */
+        private boolean appendPartial(ByteBuffer buffer, int from, int to) {
+            int length = to - from;
+            if (partialLength + length > MAX_LINE_BYTES) {
+                return lineTooLong();
+            }
+            if (partial == null || partial.length < partialLength + length) {
+                byte[] grown = new byte[Math.min(MAX_LINE_BYTES, Math.max(256, 2 * (partialLength + length)))];
+                if (partial != null) {
+                    System.arraycopy(partial, 0, grown, 0, partialLength);
+                }
+                partial = grown;
+            }
+            buffer.get(from, partial, partialLength, length);
+            partialLength += length;
+            return true;
+        }
+
+        /**
+         * Drop the '\r' of a \r\n terminator from a complete line, as CommandParser does
+         * @return false if the line is too long without it and the connection was closed
+         */
+        private boolean endLine() {
+            if (partialLength > 0 && partial[partialLength - 1] == '\r') {
+                partialLength--;
+            }
+            return partialLength <= MAX_LINE_LENGTH || lineTooLong();
+        }
+
+        private boolean lineTooLong() {
+            System.err.println("Line too long from " + address + ", closing connection");
+            close();
+            return false;
+        }
+
+        /**
+         * Start processing the inbox on the worker pool unless it is already being processed
+         */
+        private void scheduleProcessing() {
+            if (!inbox.isEmpty() && processing.compareAndSet(false, true)) {
+                workers.execute(this::processInbox);
+            }
+        }
+
+        /**
+         * Process queued lines in order (worker pool)
+         */
+        private void processInbox() {
+            Object message;
+            while ((message = inbox.poll()) != null && !closed.get()) {
+                if (message instanceof byte[]) {
+                    byte[] line = (byte[]) message;
+                    if (parser == null) {
+                        parser = new CommandParser();
+                    }
+                    parser.load(line, 0, line.length);
+                    gameServer.processLine(this, parser);
+                } else {
+                    gameServer.processFrame(this, (ByteBuffer) message);
+                }
+            }
+            processing.set(false);
+            // A line may have arrived after the last poll but before the flag was cleared
+            scheduleProcessing();
+        }
+
+        @Override
+        public void send(int opcode, int first, int second, char symbol, String text) {
+            if (closed.get()) {
+                return;
+            }
+            // Encode and queue in one step, so no message is queued in the old mode after the switch
+            sendLock.lock();
+            try {
+                byte[] bytes = binaryOut
+                        ? WireProtocol.encodeServerMessage(opcode, first, second, symbol, text)
+                        : WireProtocol.formatServerMessage(opcode, first, second, symbol, text);
+                // A client that stopped reading is closed by the event loop instead of holding more
+                if (queuedBytes.addAndGet(bytes.length) > MAX_QUEUED_BYTES) {
+                    queuedBytes.addAndGet(-bytes.length);
+                    overflowed = true;
+                } else {
+                    outbox.add(bytes);
+                }
+            } finally {
+                sendLock.unlock();
+            }
+            if (flushRequested.compareAndSet(false, true)) {
+                loop.requestFlush(this);
+            }
+        }
+
+        /**
+         * Write as much of the outbox as the socket takes (event loop only)
+         */
+        void flush() {
+            flushRequested.set(false);
+            if (closed.get() || !key.isValid()) {
+                return;
+            }
+            if (overflowed) {
+                System.err.println("Client " + address + " is not reading its messages, closing connection");
+                close();
+                return;
+            }
+            try {
+                if (writeBuffer == null) {
+                    writeBuffer = acquireBuffer();
+                }
+                while (true) {
+                    // Fill the buffer from the queued messages
+                    while (writeBuffer.hasRemaining() && (current != null || (current = takeQueued()) != null)) {
+                        int length = Math.min(writeBuffer.remaining(), current.length - currentOffset);
+                        writeBuffer.put(current, currentOffset, length);
+                        currentOffset += length;
+                        if (currentOffset == current.length) {
+                            current = null;
+                            currentOffset = 0;
+                        }
+                    }
+                    writeBuffer.flip();
+                    channel.write(writeBuffer);
+                    writeBuffer.compact();
+                    if (writeBuffer.position() > 0) {
+                        // The socket is full: continue when it becomes writable, and read no
+                        // more requests meanwhile, since their replies would only pile up
+                        key.interestOps(SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    if (current == null && outbox.isEmpty()) {
+                        break;
+                    }
+                }
+                releaseBuffer(writeBuffer);
+                writeBuffer = null;
+                key.interestOps(SelectionKey.OP_READ);
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Take the next queued message, if any, and stop counting it against MAX_QUEUED_BYTES
+         */
+        private byte[] takeQueued() {
+            byte[] bytes = outbox.poll();
+            if (bytes != null) {
+                queuedBytes.addAndGet(-bytes.length);
+            }
+            return bytes;
+        }
+
+        /**
+         * Switches to binary frames; frames are expected before the acknowledgement leaves,
+         * since the event loop may read the client's first frame before this worker returns
+         * @param playerName Name acknowledged in the last text line
+         */
+        @Override
+        public void startBinaryFrames(String playerName) {
+            binaryIn = true;
+            sendLock.lock();
+            try {
+                send(WireProtocol.REGISTERED, playerName + ":" + WireProtocol.OPTION);
+                binaryOut = true;
+            } finally {
+                sendLock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing connection: " + e.getMessage());
+            }
+            gameServer.disconnectClient(this);
+        }
+
+        @Override
+        public String getClientAddress() {
+            return address;
+        }
+    }
+}
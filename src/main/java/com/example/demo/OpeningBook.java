@@ -0,0 +1,235 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * OpeningBook holds the perfect-play move of every reachable position of a small board,
+ * so a move costs one lookup and no search.
+ *
+ * Positions are numbered in base 3 and reduced by symmetry as in Tablebase. The book keeps
+ * one byte per position number: the Tablebase value in the high 4 bits and the best cell
+ * of the canonical position, plus one, in the low 4 bits (0 when the game is over or the
+ * position is not reachable). 3x3 books are 19683 bytes.
+ *
+ * File format: magic "TTTO", version, board size, win length, 1 reserved byte, then the entries.
+ */
+public class OpeningBook implements MoveLookup {
+    /**
+     * Largest board size a book can be built for (the best cell must fit in 4 bits)
+     */
+    public static final int MAX_SIZE = 3;
+
+    private static final byte[] MAGIC = {'T', 'T', 'T', 'O'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private final int size;
+    private final int winLength;
+    private final MappedByteBuffer entries;
+    private final int[][] powers;
+    private final int[][] inverseCells;
+
+    /**
+     * Constructor for a book over mapped entries
+     * @param size Size of the board
+     * @param winLength Number of symbols in a row needed to win
+     * @param entries One byte per position number, starting at position 0
+     */
+    private OpeningBook(int size, int winLength, MappedByteBuffer entries) {
+        this.size = size;
+        this.winLength = winLength;
+        this.entries = entries;
+        this.powers = Tablebase.symmetryPowers(size);
+
+        // Maps cells of the canonical position back to the board, per symmetry
+        BoardSymmetry symmetry = BoardSymmetry.forSize(size);
+        this.inverseCells = new int[BoardSymmetry.COUNT][size * size];
+        for (int t = 0; t < BoardSymmetry.COUNT; t++) {
+            for (int cell = 0; cell < size * size; cell++) {
+                inverseCells[t][cell] = symmetry.transformCell(BoardSymmetry.inverse(t), cell);
+            }
+        }
+    }
+
+    /**
+     * Memory-map a book file
+     * @param path Path of the file written by generate
+     * @return The book
+     * @throws IOException If the file cannot be read or is not a book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (byte b : MAGIC) {
+                if (buffer.get() != b) {
+                    throw new IOException("Not an opening book file: " + path);
+                }
+            }
+            int version = buffer.get();
+            int size = buffer.get();
+            int winLength = buffer.get();
+            if (version != VERSION || size < 1 || size > MAX_SIZE || winLength < 1 || winLength > size) {
+                throw new IOException("Unsupported opening book: version " + version + ", size " + size
+                        + ", win length " + winLength);
+            }
+            if (channel.size() != HEADER_SIZE + Tablebase.pow3(size * size)) {
+                throw new IOException("Truncated opening book file: " + path);
+            }
+            buffer.position(HEADER_SIZE);
+            return new OpeningBook(size, winLength, buffer.slice());
+        }
+    }
+
+    /**
+     * Look up the perfect-play move of a position
+     * @param board The position ('X' is assumed to have moved first)
+     * @param symbol The symbol of the player to move
+     * @return The best cell (row * size + column), or -1 if the position is not in the book
+     */
+    @Override
+    public int bestMove(Board board, char symbol) {
+        if (board.getSize() != size || board.getWinLength() != winLength || board.getLayers() != 1) {
+            return -1;
+        }
+
+        // Find the canonical position number and the symmetry that leads to it
+        int best = Integer.MAX_VALUE;
+        int bestTransform = 0;
+        for (int t = 0; t < powers.length; t++) {
+            int[] power = powers[t];
+            int index = 0;
+            for (int cell = 0; cell < power.length; cell++) {
+                char cellSymbol = board.getCell(cell);
+                if (cellSymbol == 'X') {
+                    index += power[cell];
+                } else if (cellSymbol == 'O') {
+                    index += 2 * power[cell];
+                }
+            }
+            if (index < best) {
+                best = index;
+                bestTransform = t;
+            }
+        }
+
+        int canonicalCell = (entries.get(best) & 0x0F) - 1;
+        if (canonicalCell < 0) {
+            return -1;
+        }
+        return inverseCells[bestTransform][canonicalCell];
+    }
+
+    /**
+     * Look up the value of a position for the player to move
+     * @param board The position ('X' is assumed to have moved first)
+     * @return Tablebase.WIN, DRAW or LOSS, or Tablebase.UNKNOWN if the position is not in the book
+     */
+    public int probe(Board board) {
+        if (board.getSize() != size || board.getWinLength() != winLength || board.getLayers() != 1) {
+            return Tablebase.UNKNOWN;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int[] power : powers) {
+            int index = 0;
+            for (int cell = 0; cell < power.length; cell++) {
+                char cellSymbol = board.getCell(cell);
+                if (cellSymbol == 'X') {
+                    index += power[cell];
+                } else if (cellSymbol == 'O') {
+                    index += 2 * power[cell];
+                }
+            }
+            best = Math.min(best, index);
+        }
+        return (entries.get(best) >>> 4) & 0x0F;
+    }
+
+    /**
+     * Get the board size of this book
+     * @return The board size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the win length this book was solved for
+     * @return Number of symbols in a row needed to win
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Solve a board size and write the book file
+     * @param size Size of the board (at most MAX_SIZE)
+     * @param winLength Number of symbols in a row needed to win
+     * @param path Path of the file to write
+     * @throws IOException If the file cannot be written
+     */
+    public static void generate(int size, int winLength, Path path) throws IOException {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Opening books are limited to boards up to " + MAX_SIZE + "x" + MAX_SIZE);
+        }
+        Tablebase tablebase = Tablebase.solve(size, winLength);
+
+        // Canonical numbers decode to boards already in canonical orientation,
+        // so the tablebase's best cell can be stored as is
+        int cellCount = size * size;
+        byte[] entries = new byte[(int) Tablebase.pow3(cellCount)];
+        Board board = new Board(size, winLength);
+        for (int index = 0; index < entries.length; index++) {
+            board.initializeBoard();
+            int stones = 0;
+            int rest = index;
+            for (int cell = 0; cell < cellCount; cell++) {
+                int digit = rest % 3;
+                rest /= 3;
+                if (digit != 0) {
+                    board.play(cell, digit == 1 ? 'X' : 'O');
+                    stones++;
+                }
+            }
+            int value = tablebase.probe(board);
+            if (value == Tablebase.UNKNOWN) {
+                continue; // Unreachable or not canonical
+            }
+            int cell = tablebase.bestMove(board, stones % 2 == 0 ? 'X' : 'O');
+            entries[index] = (byte) ((value << 4) | (cell + 1));
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (OutputStream out = Files.newOutputStream(path)) {
+            out.write(MAGIC);
+            out.write(new byte[] {VERSION, (byte) size, (byte) winLength, 0});
+            out.write(entries);
+        }
+    }
+
+    /**
+     * Builds an opening book file from the command line
+     * Usage: OpeningBook [size] [output file] [win length]
+     * @param args Board size, output path and win length
+     * @throws IOException If the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        Path path = Paths.get(args.length > 1 ? args[1] : "data/book" + size + "x" + size + ".bin");
+        int winLength = args.length > 2 ? Integer.parseInt(args[2]) : size;
+
+        long start = System.nanoTime();
+        generate(size, winLength, path);
+        long millis = (System.nanoTime() - start) / 1_000_000L;
+        System.out.println("Wrote " + path + " in " + millis + " ms");
+    }
+}
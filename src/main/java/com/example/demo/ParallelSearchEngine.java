@@ -0,0 +1,350 @@
+package com.example.demo;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Move engine that spreads an alpha-beta search over a fork/join pool.
+ * Near the root the search uses "young brothers wait": the first (best-ordered) child
+ * of a node is searched alone to establish a bound, then its siblings are forked as
+ * separate tasks and picked up by idle workers through work stealing. Below
+ * SPLIT_DEPTH each worker searches sequentially with its own AlphaBetaEngine,
+ * and all workers share one lock-free transposition table.
+ *
+ * In deterministic mode each root move is instead searched with a full window and a
+ * private transposition table, so the chosen move does not depend on thread timing.
+ */
+public class ParallelSearchEngine implements MoveEngine {
+    private static final int INFINITY = AlphaBetaEngine.WIN_SCORE + 1;
+    private static final int SPLIT_DEPTH = 3;
+    private static final int TABLE_SIZE_BITS = 20;
+    private static final int PRIVATE_TABLE_SIZE_BITS = 16;
+
+    private final ForkJoinPool pool;
+    private final long timeBudgetMillis;
+    private final int maxDepth;
+    private final boolean deterministic;
+    private final TranspositionTable sharedTable;
+    private final ThreadLocal<AlphaBetaEngine> searchers;
+    private final LongAdder nodes = new LongAdder();
+
+    // Set by cancel until the next game, so a cancel that comes before a search still stops it
+    private volatile boolean cancelled;
+
+    // State of the current search
+    private volatile boolean aborted;
+    // Lets the sequential searchers see a cancel, or another worker running out of time
+    private final BooleanSupplier stopSignal = () -> aborted;
+    private long deadline;
+    private int size;
+    private LineTable lines;
+
+    /**
+     * Creates a parallel engine on the common fork/join pool
+     * @param timeBudgetMillis Maximum time to spend on a move, in milliseconds
+     */
+    public ParallelSearchEngine(long timeBudgetMillis) {
+        this(ForkJoinPool.commonPool(), timeBudgetMillis, 0, false);
+    }
+
+    /**
+     * Creates a parallel engine
+     * @param pool Pool whose workers run the search
+     * @param timeBudgetMillis Maximum time to spend on a move, in milliseconds
+     * @param maxDepth Search depth in plies, or 0 for the default for the board size
+     * @param deterministic true to make the result independent of thread scheduling
+     */
+    public ParallelSearchEngine(ForkJoinPool pool, long timeBudgetMillis, int maxDepth, boolean deterministic) {
+        this.pool = pool;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.maxDepth = maxDepth;
+        this.deterministic = deterministic;
+        this.sharedTable = new TranspositionTable(TABLE_SIZE_BITS);
+        this.searchers = ThreadLocal.withInitial(() -> new AlphaBetaEngine(timeBudgetMillis, 0, sharedTable, stopSignal));
+    }
+
+    /**
+     * Choose a move for the given symbol
+     * @param board The current board (not modified)
+     * @param symbol The symbol of the player to move ('X' or 'O')
+     * @return The chosen move, or null if the board has no empty cell
+     */
+    @Override
+    public synchronized Move chooseMove(Board board, char symbol) {
+        if (lines != board.getLines()) {
+            sharedTable.clear(); // New rules; no search is running, so clearing is safe
+        }
+        lines = board.getLines();
+        size = board.getSize();
+        aborted = false;
+        if (cancelled) {
+            aborted = true;
+        }
+        nodes.reset();
+        deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        int depth = maxDepth > 0 ? maxDepth : AlphaBetaEngine.defaultDepth(size);
+
+        int cell = pool.invoke(new RootTask(new Board(board), symbol == 'X' ? 0 : 1, depth));
+        if (cell < 0) {
+            return null;
+        }
+        return new Move(cell / size, cell % size, symbol);
+    }
+
+    /**
+     * Stop the search in progress and any later one until newGame; they fall back to the
+     * first move in search order. The workers' sequential searches stop within a few
+     * thousand nodes, rather than at the deadline.
+     */
+    @Override
+    public void cancel() {
+        cancelled = true;
+        aborted = true;
+    }
+
+    /**
+     * Clear the shared transposition table between games and allow searches again after a cancel
+     */
+    @Override
+    public synchronized void newGame() {
+        sharedTable.clear(); // No search is running, so clearing is safe
+        cancelled = false;
+    }
+
+    /**
+     * Get the number of nodes visited by the last search
+     * @return The node count summed over all workers
+     */
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * Generate the moves of a position in search order
+     * @param board The board
+     * @param firstCell Cell to try first, or -1
+     * @return The ordered cells (only allocated at split points)
+     */
+    private int[] orderedMoves(Board board, int firstCell) {
+        AlphaBetaEngine searcher = searchers.get();
+        searcher.prepare(board);
+        int[] buffer = new int[board.getCellCount()];
+        int count = searcher.generateMoves(board, buffer, firstCell);
+        int[] moves = new int[count];
+        System.arraycopy(buffer, 0, moves, 0, count);
+        return moves;
+    }
+
+    /**
+     * Search a subtree sequentially on the current worker
+     */
+    private int searchSequential(Board board, int player, int depth, int ply, int alpha, int beta,
+                                 TranspositionTable privateTable) {
+        AlphaBetaEngine searcher = privateTable != null
+                ? new AlphaBetaEngine(timeBudgetMillis, 0, privateTable, stopSignal)
+                : searchers.get();
+        int score = searcher.searchNode(board, player, depth, ply, alpha, beta, deadline);
+        nodes.add(searcher.getNodes());
+        if (searcher.wasAborted()) {
+            aborted = true;
+        }
+        return score;
+    }
+
+    /**
+     * Score a finished game from the mover's point of view, as AlphaBetaEngine does
+     * @param board The board after the move
+     * @param result Result of Board.play
+     * @param ply Distance of the mover from the root
+     * @return The terminal score, or Integer.MIN_VALUE if the game continues
+     */
+    private static int terminalScore(Board board, int result, int ply) {
+        if (result == 1) {
+            return AlphaBetaEngine.WIN_SCORE - (ply + 1);
+        }
+        if (result == 0 || board.isDeadDraw()) {
+            // Nobody can win from here
+            return 0;
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Searches the root, returning the best cell
+     */
+    @SuppressWarnings("serial") // Tasks are never serialized
+    private final class RootTask extends RecursiveTask<Integer> {
+        private final Board board;
+        private final int player;
+        private final int depth;
+
+        RootTask(Board board, int player, int depth) {
+            this.board = board;
+            this.player = player;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Integer compute() {
+            long entry = deterministic ? 0L : sharedTable.probe(board);
+            int[] moves = orderedMoves(board, entry != 0 ? TranspositionTable.bestCellOf(entry) : -1);
+            if (moves.length == 0) {
+                return -1;
+            }
+
+            char symbol = player == 0 ? 'X' : 'O';
+            int[] scores = new int[moves.length];
+            int alpha = -INFINITY;
+            int first = 0;
+
+            // Young brothers wait: search the first move alone to get a bound (skipped
+            // in deterministic mode, where every root move gets a full window)
+            if (!deterministic) {
+                scores[0] = childScore(board, moves[0], symbol);
+                alpha = scores[0];
+                first = 1;
+            }
+
+            // Search the remaining moves in parallel
+            ChildTask[] tasks = new ChildTask[moves.length];
+            for (int i = first; i < moves.length; i++) {
+                Board child = new Board(board);
+                int result = child.play(moves[i], symbol);
+                int terminal = terminalScore(child, result, 0);
+                if (terminal != Integer.MIN_VALUE) {
+                    scores[i] = terminal;
+                } else {
+                    TranspositionTable table = deterministic ? new TranspositionTable(PRIVATE_TABLE_SIZE_BITS) : null;
+                    tasks[i] = new ChildTask(child, 1 - player, depth - 1, 1, -INFINITY, -alpha, table);
+                    tasks[i].fork();
+                }
+            }
+            for (int i = moves.length - 1; i >= first; i--) {
+                if (tasks[i] != null) {
+                    scores[i] = -tasks[i].join();
+                }
+            }
+
+            // Pick the best move; ties go to the earlier move in search order
+            int best = 0;
+            for (int i = 1; i < moves.length; i++) {
+                if (scores[i] > scores[best]) {
+                    best = i;
+                }
+            }
+            if (aborted) {
+                // Scores of unfinished subtrees are meaningless; fall back to move ordering
+                return moves[0];
+            }
+            if (!deterministic) {
+                sharedTable.store(board, depth, TranspositionTable.EXACT, scores[best], moves[best]);
+            }
+            return moves[best];
+        }
+
+        private int childScore(Board board, int cell, char symbol) {
+            int result = board.play(cell, symbol);
+            int score = terminalScore(board, result, 0);
+            if (score == Integer.MIN_VALUE) {
+                score = -new ChildTask(board, 1 - player, depth - 1, 1, -INFINITY, INFINITY, null).compute();
+            }
+            board.unplay(cell);
+            return score;
+        }
+    }
+
+    /**
+     * Searches an inner node, splitting near the root and going sequential below SPLIT_DEPTH
+     */
+    @SuppressWarnings("serial") // Tasks are never serialized
+    private final class ChildTask extends RecursiveTask<Integer> {
+        private final Board board;
+        private final int player;
+        private final int depth;
+        private final int ply;
+        private final int alpha;
+        private final int beta;
+        private final TranspositionTable privateTable;
+
+        ChildTask(Board board, int player, int depth, int ply, int alpha, int beta,
+                  TranspositionTable privateTable) {
+            this.board = board;
+            this.player = player;
+            this.depth = depth;
+            this.ply = ply;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.privateTable = privateTable;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (aborted || System.nanoTime() > deadline) {
+                aborted = true;
+                return 0;
+            }
+
+            // Deterministic searches and small subtrees are searched on this worker
+            if (privateTable != null || depth <= SPLIT_DEPTH) {
+                return searchSequential(board, player, depth, ply, alpha, beta, privateTable);
+            }
+
+            long entry = sharedTable.probe(board);
+            int[] moves = orderedMoves(board, entry != 0 ? TranspositionTable.bestCellOf(entry) : -1);
+            char symbol = player == 0 ? 'X' : 'O';
+
+            // Eldest brother first
+            int cell = moves[0];
+            int result = board.play(cell, symbol);
+            int bestScore = terminalScore(board, result, ply);
+            if (bestScore == Integer.MIN_VALUE) {
+                bestScore = -new ChildTask(board, 1 - player, depth - 1, ply + 1, -beta, -alpha, null).compute();
+            }
+            board.unplay(cell);
+            int bestCell = cell;
+            int currentAlpha = Math.max(alpha, bestScore);
+
+            // Young brothers in parallel, once the eldest did not cause a cutoff
+            if (currentAlpha < beta && moves.length > 1) {
+                ChildTask[] tasks = new ChildTask[moves.length];
+                int[] scores = new int[moves.length];
+                for (int i = 1; i < moves.length; i++) {
+                    Board child = new Board(board);
+                    int childResult = child.play(moves[i], symbol);
+                    scores[i] = terminalScore(child, childResult, ply);
+                    if (scores[i] == Integer.MIN_VALUE) {
+                        tasks[i] = new ChildTask(child, 1 - player, depth - 1, ply + 1, -beta, -currentAlpha, null);
+                        tasks[i].fork();
+                    }
+                }
+                for (int i = moves.length - 1; i >= 1; i--) {
+                    if (tasks[i] != null) {
+                        scores[i] = -tasks[i].join();
+                    }
+                }
+                for (int i = 1; i < moves.length; i++) {
+                    if (scores[i] > bestScore) {
+                        bestScore = scores[i];
+                        bestCell = moves[i];
+                    }
+                }
+            }
+            if (aborted) {
+                return 0;
+            }
+
+            int flag;
+            if (bestScore <= alpha) {
+                flag = TranspositionTable.UPPER_BOUND;
+            } else if (bestScore >= beta) {
+                flag = TranspositionTable.LOWER_BOUND;
+            } else {
+                flag = TranspositionTable.EXACT;
+            }
+            sharedTable.store(board, depth, flag, AlphaBetaEngine.toTable(bestScore, ply), bestCell);
+            return bestScore;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.demo;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft-style enumeration of every move sequence from a position, to a fixed depth.
+ * Each sequence either ends the game (a win for one side or a tie) or reaches the depth
+ * and counts as a leaf. The counts are known exactly for small boards (from the empty
+ * 3x3 board: 255168 games, 131184 won by X, 77904 won by O and 46080 ties), so this is
+ * a correctness check for Board as well as a throughput benchmark for play/unplay and
+ * win detection, on flat boards and on cubes such as 4x4x4 Qubic.
+ *
+ * With more than one thread the root moves and their replies are searched as separate
+ * fork/join tasks, each on its own copy of the board.
+ */
+public class Perft {
+    private Perft() {
+    }
+
+    /**
+     * Enumerate the move sequences from a position
+     * @param board The position (not modified)
+     * @param symbol The symbol of the player to move
+     * @param depth Number of moves to look ahead
+     * @param threads Number of threads, 1 to run on the calling thread
+     * @return The counts
+     */
+    public static Counts run(Board board, char symbol, int depth, int threads) {
+        long start = System.nanoTime();
+        Counts counts;
+        if (threads <= 1) {
+            counts = new Counts();
+            count(new Board(board), symbol, depth, counts);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                counts = pool.invoke(new SplitTask(new Board(board), symbol, depth, 2));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        counts.elapsedNanos = System.nanoTime() - start;
+        return counts;
+    }
+
+    /**
+     * Count the sequences below a position on the current thread
+     */
+    private static void count(Board board, char symbol, int depth, Counts counts) {
+        int cellCount = board.getCellCount();
+        char next = symbol == 'X' ? 'O' : 'X';
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (!board.isEmpty(cell)) {
+                continue;
+            }
+            int result = board.play(cell, symbol);
+            counts.nodes++;
+            if (result == Board.WIN) {
+                if (symbol == 'X') {
+                    counts.xWins++;
+                } else {
+                    counts.oWins++;
+                }
+            } else if (result == Board.TIE) {
+                counts.ties++;
+            } else if (depth == 1) {
+                counts.leaves++;
+            } else {
+                count(board, next, depth - 1, counts);
+            }
+            board.unplay(cell);
+        }
+    }
+
+    /**
+     * Forks one task per move for the first few plies, then counts sequentially
+     */
+    @SuppressWarnings("serial") // Tasks are never serialized
+    private static final class SplitTask extends RecursiveTask<Counts> {
+        private final Board board;
+        private final char symbol;
+        private final int depth;
+        private final int splitPlies;
+
+        SplitTask(Board board, char symbol, int depth, int splitPlies) {
+            this.board = board;
+            this.symbol = symbol;
+            this.depth = depth;
+            this.splitPlies = splitPlies;
+        }
+
+        @Override
+        protected Counts compute() {
+            Counts counts = new Counts();
+            if (splitPlies == 0 || depth == 1) {
+                count(board, symbol, depth, counts);
+                return counts;
+            }
+
+            int cellCount = board.getCellCount();
+            char next = symbol == 'X' ? 'O' : 'X';
+            SplitTask[] tasks = new SplitTask[cellCount];
+            for (int cell = 0; cell < cellCount; cell++) {
+                if (!board.isEmpty(cell)) {
+                    continue;
+                }
+                Board child = new Board(board);
+                int result = child.play(cell, symbol);
+                counts.nodes++;
+                if (result == Board.WIN) {
+                    if (symbol == 'X') {
+                        counts.xWins++;
+                    } else {
+                        counts.oWins++;
+                    }
+                } else if (result == Board.TIE) {
+                    counts.ties++;
+                } else {
+                    tasks[cell] = new SplitTask(child, next, depth - 1, splitPlies - 1);
+                    tasks[cell].fork();
+                }
+            }
+            for (int cell = cellCount - 1; cell >= 0; cell--) {
+                if (tasks[cell] != null) {
+                    counts.add(tasks[cell].join());
+                }
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Runs perft from the empty board for every depth up to a limit
+     * Usage: Perft [size] [max depth] [threads] [2D|3D]
+     * @param args Board size, maximum depth, thread count and board shape
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int layers = args.length > 3 && args[3].equalsIgnoreCase("3D") ? size : 1;
+
+        Board board = new Board(size, size, layers);
+        board.initializeBoard();
+        int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : board.getCellCount();
+        String shape = layers > 1 ? size + "x" + size + "x" + size : size + "x" + size;
+        System.out.println("Perft on an empty " + shape + " board (" + board.getLines().getLineCount()
+                + " lines), " + threads + " thread(s)");
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            System.out.println("depth " + depth + ": " + run(board, 'X', depth, threads));
+        }
+    }
+
+    /**
+     * Counts of one perft run
+     */
+    public static final class Counts {
+        private long nodes;
+        private long leaves;
+        private long xWins;
+        private long oWins;
+        private long ties;
+        private long elapsedNanos;
+
+        private void add(Counts other) {
+            nodes += other.nodes;
+            leaves += other.leaves;
+            xWins += other.xWins;
+            oWins += other.oWins;
+            ties += other.ties;
+        }
+
+        /**
+         * Get the number of moves played
+         * @return Nodes visited, not counting the starting position
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Get the number of sequences that reached the depth with the game still going
+         * @return The leaf count
+         */
+        public long getLeaves() {
+            return leaves;
+        }
+
+        /**
+         * Get the number of sequences won by 'X'
+         * @return X wins
+         */
+        public long getXWins() {
+            return xWins;
+        }
+
+        /**
+         * Get the number of sequences won by 'O'
+         * @return O wins
+         */
+        public long getOWins() {
+            return oWins;
+        }
+
+        /**
+         * Get the number of sequences that filled the board without a winner
+         * @return Ties
+         */
+        public long getTies() {
+            return ties;
+        }
+
+        /**
+         * Get the throughput of the run
+         * @return Nodes per second
+         */
+        public double getNodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d leaves, %d X wins, %d O wins, %d ties, %d nodes in %.3f s (%.0f nodes/s)",
+                    leaves, xWins, oWins, ties, nodes, elapsedNanos / 1e9, getNodesPerSecond());
+        }
+    }
+}
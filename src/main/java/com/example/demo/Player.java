@@ -7,6 +7,8 @@ package com.example.demo;
 public class Player {
     private String name;
     private int boardSize;
+    private int winLength; // 0 for a full row, column or diagonal
+    private int layers = 1; // boardSize for a cube
     private char symbol;
     private boolean isHuman; // Could be used to distinguish human vs AI players
 
@@ -64,6 +66,38 @@ public class Player {
         this.boardSize = boardSize;
     }
 
+    /**
+     * Get the preferred win length
+     * @return Number of symbols in a row needed to win
+     */
+    public int getWinLength() {
+        return winLength > 0 ? winLength : boardSize;
+    }
+
+    /**
+     * Set the preferred win length
+     * @param winLength Number of symbols in a row needed to win, or 0 for the board size
+     */
+    public void setWinLength(int winLength) {
+        this.winLength = winLength;
+    }
+
+    /**
+     * Get the preferred number of layers
+     * @return 1 for a flat board, the board size for a cube
+     */
+    public int getLayers() {
+        return layers;
+    }
+
+    /**
+     * Set the preferred number of layers
+     * @param layers 1 for a flat board, the board size for a cube
+     */
+    public void setLayers(int layers) {
+        this.layers = layers;
+    }
+
     /**
      * Get the player's symbol
      * @return Player's symbol
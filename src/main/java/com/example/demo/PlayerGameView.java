@@ -99,14 +99,14 @@ public class PlayerGameView {
 
     /**
      * Update the board display based on the current game state
-     * @param boardState Current state of the board
+     * @param boardState Read-only snapshot of the board
      */
-    public void updateBoard(char[][] boardState) {
+    public void updateBoard(BoardSnapshot boardState) {
         // Update must happen on the JavaFX application thread
         Platform.runLater(() -> {
             for (int row = 0; row < boardSize; row++) {
                 for (int col = 0; col < boardSize; col++) {
-                    char cell = boardState[row][col];
+                    char cell = boardState.getCell(row, col);
                     if (cell != '-') {
                         buttons[row][col].setText(String.valueOf(cell));
                         // Disable all buttons if it's not this player's turn
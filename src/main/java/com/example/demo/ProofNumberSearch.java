@@ -0,0 +1,694 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ProofNumberSearch solves positions exactly with depth-first proof-number search (df-pn),
+ * for boards too large for a Tablebase, such as critical 5x5 positions.
+ *
+ * Proof-number search answers a yes/no question, so a position is solved with two of them
+ * for the player to move: "can I force a win?" and, if not, "can I avoid losing?". Every node
+ * has a proof number (how many leaves at least still have to be proven to answer yes) and a
+ * disproof number, and the search always expands the most promising node below thresholds
+ * that keep it depth-first. Only these two numbers are kept per position, in a fixed-size
+ * table, so memory stays bounded whatever the size of the proof; an entry lost to
+ * replacement is simply searched again.
+ *
+ * Several threads can work on the same question: they share the table without locking
+ * (each slot stores the entry next to key XOR entry, as in TranspositionTable) and break
+ * ties between equally promising moves differently, so they spread over the tree and
+ * pick up each other's results.
+ *
+ * The table can be written to a checkpoint file at regular intervals and loaded again, so
+ * a long solve that is interrupted resumes with everything it had already proven.
+ *
+ * File format: magic "TTPN", version, board size, win length, layers, table bits (4 bytes),
+ * then the check and the entry of every slot (8 bytes each).
+ */
+public class ProofNumberSearch {
+    /**
+     * Proof or disproof number of a solved node
+     */
+    public static final int INFINITY = (1 << 28) - 1;
+
+    private static final int CAN_WIN = 0;
+    private static final int CAN_AVOID_LOSS = 1;
+
+    // Mixed into the position hash so each question and attacker has its own entries
+    private static final long[] QUESTION_KEYS = {
+            0x6A09E667F3BCC909L, 0xBB67AE8584CAA73BL, 0x3C6EF372FE94F82BL, 0xA54FF53A5F1D36F1L
+    };
+
+    // Search results: proof number in the low 32 bits, disproof number in the high 32 bits
+    private static final long PROVEN = (long) INFINITY << 32;
+    private static final long DISPROVEN = INFINITY;
+    private static final long UNEXPLORED = 1L << 32 | 1;
+
+    private static final byte[] MAGIC = {'T', 'T', 'P', 'N'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+    private static final int CHECKPOINT_CHECK_NODES = 1 << 16;
+
+    private final int size;
+    private final int winLength;
+    private final int layers;
+    private final int cellCount;
+    private final int tableBits;
+    private final int threads;
+
+    // Entry layout: work (8 bits) | disproof number (28 bits) | proof number (28 bits)
+    private final AtomicLongArray checks;
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    private Path checkpoint;
+    private long checkpointIntervalNanos;
+    private long nextCheckpoint;
+
+    // State of the question being searched
+    private volatile boolean stopped;
+    private volatile long rootResult;
+    private long nodes;
+
+    /**
+     * Creates a solver for one set of rules
+     * @param size Size of the board
+     * @param winLength Number of symbols in a row needed to win
+     * @param layers 1 for a flat board, size for a cube
+     * @param tableBits Base-2 logarithm of the number of table entries (16 bytes each)
+     * @param threads Number of search threads
+     */
+    public ProofNumberSearch(int size, int winLength, int layers, int tableBits, int threads) {
+        this.size = size;
+        this.winLength = winLength;
+        this.layers = layers;
+        this.cellCount = layers * size * size;
+        this.tableBits = tableBits;
+        this.threads = Math.max(1, threads);
+        int capacity = 1 << tableBits;
+        this.checks = new AtomicLongArray(capacity);
+        this.entries = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Write the table to a checkpoint file at regular intervals while searching
+     * @param path Path of the checkpoint file
+     * @param intervalMillis Time between checkpoints
+     */
+    public void checkpointTo(Path path, long intervalMillis) {
+        this.checkpoint = path;
+        this.checkpointIntervalNanos = intervalMillis * 1_000_000L;
+        this.nextCheckpoint = System.nanoTime() + checkpointIntervalNanos;
+    }
+
+    /**
+     * Load the table from a checkpoint file written by an earlier run with the same rules
+     * @param path Path of the checkpoint file
+     * @return true if the table was loaded, false if the file does not exist
+     * @throws IOException If the file cannot be read or was written for other rules
+     */
+    public boolean resumeFrom(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+            readFully(channel, buffer.limit(HEADER_SIZE));
+            buffer.flip();
+            for (byte b : MAGIC) {
+                if (buffer.get() != b) {
+                    throw new IOException("Not a proof-number checkpoint: " + path);
+                }
+            }
+            int version = buffer.get();
+            int fileSize = buffer.get();
+            int fileWinLength = buffer.get();
+            int fileLayers = buffer.get();
+            int fileTableBits = buffer.getInt();
+            if (version != VERSION || fileSize != size || fileWinLength != winLength || fileLayers != layers
+                    || fileTableBits != tableBits) {
+                throw new IOException("Checkpoint " + path + " was written for other rules or another table size");
+            }
+            if (channel.size() != HEADER_SIZE + 16L * (mask + 1)) {
+                throw new IOException("Truncated proof-number checkpoint: " + path);
+            }
+            for (int slot = 0; slot <= mask; slot++) {
+                if (!buffer.hasRemaining()) {
+                    buffer.clear().limit((int) Math.min(IO_BUFFER_SIZE, channel.size() - channel.position()));
+                    readFully(channel, buffer);
+                    buffer.flip();
+                }
+                checks.set(slot, buffer.getLong());
+                entries.set(slot, buffer.getLong());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the table to the checkpoint file now. Searches may keep running: an entry
+     * torn by a concurrent store is rejected when the checkpoint is loaded again.
+     * @throws IOException If the file cannot be written
+     */
+    public void writeCheckpoint() throws IOException {
+        if (checkpoint == null) {
+            return;
+        }
+        Path parent = checkpoint.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        // Write a temporary file first, so a crash never leaves a half-written checkpoint
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+            buffer.put(MAGIC).put((byte) VERSION).put((byte) size).put((byte) winLength).put((byte) layers)
+                    .putInt(tableBits);
+            for (int slot = 0; slot <= mask; slot++) {
+                if (buffer.remaining() < 16) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putLong(checks.getOpaque(slot)).putLong(entries.getOpaque(slot));
+            }
+            writeFully(channel, buffer);
+        }
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Fill a buffer from a channel
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of checkpoint");
+            }
+        }
+    }
+
+    /**
+     * Write out and clear a buffer
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Solve a position
+     * @param position The position ('X' is assumed to have moved first; not modified)
+     * @param symbol The symbol of the player to move
+     * @return The value of the position for the player to move and a move that keeps it
+     */
+    public Result solve(Board position, char symbol) {
+        if (position.getSize() != size || position.getWinLength() != winLength || position.getLayers() != layers) {
+            throw new IllegalArgumentException("Position does not match the solver's rules");
+        }
+        long start = System.nanoTime();
+        nodes = 0;
+        Board board = new Board(position);
+
+        int value;
+        int bestCell = -1;
+        if (board.getFilledCells() == cellCount || board.isDeadDraw()) {
+            value = Tablebase.DRAW;
+        } else if (prove(board, symbol, symbol, CAN_WIN)) {
+            value = Tablebase.WIN;
+            bestCell = provingMove(board, symbol, CAN_WIN);
+        } else if (prove(board, symbol, symbol, CAN_AVOID_LOSS)) {
+            value = Tablebase.DRAW;
+            bestCell = provingMove(board, symbol, CAN_AVOID_LOSS);
+        } else {
+            value = Tablebase.LOSS;
+        }
+        return new Result(value, bestCell, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Find a move whose position still answers the question with yes
+     * @return The cell, or -1 if none was found
+     */
+    private int provingMove(Board board, char symbol, int question) {
+        char next = symbol == 'X' ? 'O' : 'X';
+
+        // Try the moves the table already rates best first, so the answer is usually a lookup
+        List<long[]> moves = new ArrayList<>();
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (board.isEmpty(cell)) {
+                board.play(cell, symbol);
+                moves.add(new long[] {proofOf(probe(keyOf(board, symbol, question))), cell});
+                board.unplay(cell);
+            }
+        }
+        moves.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        for (long[] move : moves) {
+            int cell = (int) move[1];
+            int result = board.play(cell, symbol);
+            boolean proven;
+            if (result == Board.WIN) {
+                proven = true;
+            } else if (result == Board.TIE || board.isDeadDraw()) {
+                proven = question == CAN_AVOID_LOSS;
+            } else {
+                proven = prove(board, next, symbol, question);
+            }
+            board.unplay(cell);
+            if (proven) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Answer a question about a position that is not over
+     * @param board The position
+     * @param mover The symbol of the player to move
+     * @param attacker The symbol of the player the question is about
+     * @param question CAN_WIN or CAN_AVOID_LOSS
+     * @return true if the attacker can reach the goal against any defence
+     */
+    private boolean prove(Board board, char mover, char attacker, int question) {
+        long key = keyOf(board, attacker, question);
+        long known = probe(key);
+        if (proofOf(known) == 0 || disproofOf(known) == 0) {
+            return proofOf(known) == 0;
+        }
+
+        stopped = false;
+        rootResult = UNEXPLORED;
+        Searcher[] searchers = new Searcher[threads];
+        for (int i = 0; i < threads; i++) {
+            searchers[i] = new Searcher(i, new Board(board), attacker, question);
+        }
+        if (threads == 1) {
+            searchers[0].run(mover, key);
+        } else {
+            Thread[] workers = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                Searcher searcher = searchers[i];
+                workers[i] = new Thread(() -> searcher.run(mover, key), "dfpn-" + i);
+                workers[i].start();
+            }
+            try {
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+            } catch (InterruptedException e) {
+                stopped = true;
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Searcher searcher : searchers) {
+            nodes += searcher.nodes;
+        }
+        return proofOf(rootResult) == 0;
+    }
+
+    /**
+     * Get the table key of a position for a question
+     */
+    private static long keyOf(Board board, char attacker, int question) {
+        return board.getCanonicalHash() ^ QUESTION_KEYS[question * 2 + (attacker == 'X' ? 0 : 1)];
+    }
+
+    /**
+     * Look up the proof and disproof numbers of a position
+     * @return The packed numbers, or those of an unexplored node
+     */
+    private long probe(long key) {
+        int slot = slotOf(key);
+        for (int i = slot; i <= slot + 1; i++) {
+            long entry = entries.getOpaque(i);
+            if (entry != 0 && (checks.getOpaque(i) ^ entry) == key) {
+                return (entry >>> 28 & INFINITY) << 32 | (entry & INFINITY);
+            }
+        }
+        return UNEXPLORED;
+    }
+
+    /**
+     * Store the proof and disproof numbers of a position. Each key may go to one of two
+     * slots; the entry whose subtree took less work to search is replaced.
+     * @param work Number of nodes the result took to compute
+     * @return The packed numbers
+     */
+    private long store(long key, int proof, int disproof, long work) {
+        int slot = slotOf(key);
+        int target = slot;
+        long first = entries.getOpaque(slot);
+        long second = entries.getOpaque(slot + 1);
+        if ((checks.getOpaque(slot + 1) ^ second) == key
+                || ((checks.getOpaque(slot) ^ first) != key && second >>> 56 < first >>> 56)) {
+            target = slot + 1;
+        }
+        long workBits = 64 - Long.numberOfLeadingZeros(work);
+        long entry = workBits << 56 | (long) disproof << 28 | proof;
+        checks.setOpaque(target, key ^ entry);
+        entries.setOpaque(target, entry);
+        return (long) disproof << 32 | proof;
+    }
+
+    /**
+     * Map a key to the first slot of its pair
+     */
+    private int slotOf(long key) {
+        return (int) (key ^ (key >>> 32)) & mask & ~1;
+    }
+
+    private static int proofOf(long numbers) {
+        return (int) numbers;
+    }
+
+    private static int disproofOf(long numbers) {
+        return (int) (numbers >>> 32);
+    }
+
+    /**
+     * Add up proof or disproof numbers, staying below INFINITY unless one of them is infinite
+     */
+    private static int sum(long total, boolean infinite) {
+        return infinite ? INFINITY : (int) Math.min(total, INFINITY - 1);
+    }
+
+    /**
+     * Threshold for the best child, set a little above the second best (the 1 + epsilon trick),
+     * so the search does not keep switching between two children of nearly equal cost
+     */
+    private static int widen(int second) {
+        return second >= INFINITY ? INFINITY : (int) Math.min(INFINITY, second + second / 4 + 1L);
+    }
+
+    /**
+     * Threshold for the summed number of the best child: what the parent can still afford
+     */
+    private static int relax(int threshold, int total, int child) {
+        return threshold >= INFINITY ? INFINITY : (int) Math.min(INFINITY, (long) threshold - total + child);
+    }
+
+    /**
+     * One search thread, with its own board and move buffers
+     */
+    private final class Searcher {
+        private final int index;
+        private final Board board;
+        private final char attacker;
+        private final int question;
+        private final SplittableRandom random;
+
+        // Children of the node at each ply
+        private final int[][] cells;
+        private final int[][] proofs;
+        private final int[][] disproofs;
+        private final long[][] keys;
+
+        private long nodes;
+        private long nextCheckpointCheck = CHECKPOINT_CHECK_NODES;
+
+        Searcher(int index, Board board, char attacker, int question) {
+            this.index = index;
+            this.board = board;
+            this.attacker = attacker;
+            this.question = question;
+            this.random = new SplittableRandom(index);
+            int plies = cellCount - board.getFilledCells() + 1;
+            this.cells = new int[plies][cellCount];
+            this.proofs = new int[plies][cellCount];
+            this.disproofs = new int[plies][cellCount];
+            this.keys = new long[plies][cellCount];
+        }
+
+        /**
+         * Search the root until it is solved or another thread solved it
+         */
+        void run(char mover, long key) {
+            long result = search(0, mover, INFINITY, INFINITY, key);
+            if (proofOf(result) == 0 || disproofOf(result) == 0) {
+                rootResult = result;
+                stopped = true;
+            }
+        }
+
+        /**
+         * Search a node until its proof or disproof number reaches its threshold
+         * @param ply Depth below the root
+         * @param mover The symbol of the player to move
+         * @param proofThreshold Proof number at which to return
+         * @param disproofThreshold Disproof number at which to return
+         * @param key Table key of the node
+         * @return The packed proof and disproof numbers of the node
+         */
+        private long search(int ply, char mover, int proofThreshold, int disproofThreshold, long key) {
+            boolean orNode = mover == attacker;
+            char next = mover == 'X' ? 'O' : 'X';
+            int[] childCells = cells[ply];
+            int[] childProofs = proofs[ply];
+            int[] childDisproofs = disproofs[ply];
+            long[] childKeys = keys[ply];
+            long startNodes = nodes;
+
+            // Expand: evaluate every move, stopping at one that decides the node
+            int count = 0;
+            for (int cell = 0; cell < cellCount; cell++) {
+                if (!board.isEmpty(cell)) {
+                    continue;
+                }
+                int result = board.play(cell, mover);
+                nodes++;
+                long childKey = 0;
+                long numbers;
+                if (result == Board.WIN) {
+                    numbers = orNode ? PROVEN : DISPROVEN;
+                } else if (result == Board.TIE || board.isDeadDraw()) {
+                    numbers = question == CAN_AVOID_LOSS ? PROVEN : DISPROVEN;
+                } else {
+                    childKey = keyOf(board, attacker, question);
+                    numbers = probe(childKey);
+                }
+                board.unplay(cell);
+                if (orNode ? proofOf(numbers) == 0 : disproofOf(numbers) == 0) {
+                    return store(key, proofOf(numbers), disproofOf(numbers), nodes - startNodes);
+                }
+                childCells[count] = cell;
+                childProofs[count] = proofOf(numbers);
+                childDisproofs[count] = disproofOf(numbers);
+                childKeys[count] = childKey;
+                count++;
+            }
+            if (count == 0) {
+                // Cannot happen for a game in progress; treat it as a draw
+                return question == CAN_AVOID_LOSS ? PROVEN : DISPROVEN;
+            }
+
+            // Helper threads start scanning at a random child, so they break ties differently
+            int offset = index == 0 || count == 0 ? 0 : random.nextInt(count);
+            while (true) {
+                int proof;
+                int disproof;
+                int best = -1;
+                int second = INFINITY;
+                long total = 0;
+                boolean infinite = false;
+                if (orNode) {
+                    // Proven by any child, disproven only by all of them
+                    proof = INFINITY;
+                    for (int j = 0; j < count; j++) {
+                        int i = (j + offset) % count;
+                        total += childDisproofs[i];
+                        infinite |= childDisproofs[i] >= INFINITY;
+                        if (childProofs[i] < proof) {
+                            second = proof;
+                            proof = childProofs[i];
+                            best = i;
+                        } else if (childProofs[i] < second) {
+                            second = childProofs[i];
+                        }
+                    }
+                    disproof = sum(total, infinite);
+                } else {
+                    // Disproven by any child, proven only by all of them
+                    disproof = INFINITY;
+                    for (int j = 0; j < count; j++) {
+                        int i = (j + offset) % count;
+                        total += childProofs[i];
+                        infinite |= childProofs[i] >= INFINITY;
+                        if (childDisproofs[i] < disproof) {
+                            second = disproof;
+                            disproof = childDisproofs[i];
+                            best = i;
+                        } else if (childDisproofs[i] < second) {
+                            second = childDisproofs[i];
+                        }
+                    }
+                    proof = sum(total, infinite);
+                }
+                if (proof >= proofThreshold || disproof >= disproofThreshold || stopped) {
+                    return store(key, proof, disproof, nodes - startNodes);
+                }
+
+                int childProofThreshold;
+                int childDisproofThreshold;
+                if (orNode) {
+                    childProofThreshold = Math.min(proofThreshold, widen(second));
+                    childDisproofThreshold = relax(disproofThreshold, disproof, childDisproofs[best]);
+                } else {
+                    childDisproofThreshold = Math.min(disproofThreshold, widen(second));
+                    childProofThreshold = relax(proofThreshold, proof, childProofs[best]);
+                }
+
+                int cell = childCells[best];
+                board.play(cell, mover);
+                long numbers = search(ply + 1, next, childProofThreshold, childDisproofThreshold, childKeys[best]);
+                board.unplay(cell);
+                childProofs[best] = proofOf(numbers);
+                childDisproofs[best] = disproofOf(numbers);
+
+                if (index == 0 && nodes >= nextCheckpointCheck) {
+                    nextCheckpointCheck = nodes + CHECKPOINT_CHECK_NODES;
+                    checkpointIfDue();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a checkpoint if the interval has passed (called by the first search thread)
+     */
+    private void checkpointIfDue() {
+        if (checkpoint == null || System.nanoTime() < nextCheckpoint) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            writeCheckpoint();
+            System.out.println("Checkpoint written to " + checkpoint + " in "
+                    + (System.nanoTime() - start) / 1_000_000L + " ms");
+        } catch (IOException e) {
+            System.err.println("Error writing checkpoint: " + e.getMessage());
+        }
+        nextCheckpoint = System.nanoTime() + checkpointIntervalNanos;
+    }
+
+    /**
+     * Solves positions from the command line and adds them to a solved positions file,
+     * which the server loads for hints and computer moves
+     * Usage: ProofNumberSearch [size] [win length] [positions file] [output file] [threads] [table bits] [checkpoint file]
+     * The positions file holds one position per line as the moves played so far, 'X' first,
+     * e.g. "2,2 1,3" ('#' starts a comment, an empty line is the empty board). Without it
+     * the empty board is solved.
+     * @param args Rules, input and output paths, thread count and table size
+     * @throws IOException If a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int winLength = args.length > 1 ? Integer.parseInt(args[1]) : size;
+        Path positions = args.length > 2 && !args[2].equals("-") ? Paths.get(args[2]) : null;
+        Path output = Paths.get(args.length > 3 ? args[3] : "data/solved" + size + "x" + size + ".bin");
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        int tableBits = args.length > 5 ? Integer.parseInt(args[5]) : 24;
+        Path checkpoint = args.length > 6 ? Paths.get(args[6]) : null;
+
+        ProofNumberSearch solver = new ProofNumberSearch(size, winLength, 1, tableBits, threads);
+        if (checkpoint != null) {
+            if (solver.resumeFrom(checkpoint)) {
+                System.out.println("Resumed from " + checkpoint);
+            }
+            solver.checkpointTo(checkpoint, 60_000);
+        }
+
+        List<String> lines = positions != null ? Files.readAllLines(positions) : List.of("");
+        SortedMap<Long, Integer> solved = Files.exists(output)
+                ? SolvedPositions.open(output).entries()
+                : new TreeMap<>();
+        for (String line : lines) {
+            String moves = line.replaceAll("#.*", "").trim();
+            if (moves.isEmpty() && positions != null && !line.isEmpty()) {
+                continue; // Comment line
+            }
+            Board board = new Board(size, winLength);
+            board.initializeBoard();
+            char symbol = 'X';
+            for (String move : moves.isEmpty() ? new String[0] : moves.split("\\s+")) {
+                String[] coordinates = move.split(",");
+                board.makeMove(Integer.parseInt(coordinates[0]), Integer.parseInt(coordinates[1]), symbol);
+                symbol = symbol == 'X' ? 'O' : 'X';
+            }
+
+            Result result = solver.solve(board, symbol);
+            System.out.println("[" + moves + "] " + symbol + " to move: " + result);
+            solved.put(board.getCanonicalHash(),
+                    SolvedPositions.entryOf(board, result.getValue(), result.getBestCell()));
+            SolvedPositions.write(output, size, winLength, 1, solved);
+        }
+        solver.writeCheckpoint();
+        System.out.println("Wrote " + solved.size() + " positions to " + output);
+    }
+
+    /**
+     * Outcome of solving one position
+     */
+    public static final class Result {
+        private final int value;
+        private final int bestCell;
+        private final long nodes;
+        private final long elapsedNanos;
+
+        Result(int value, int bestCell, long nodes, long elapsedNanos) {
+            this.value = value;
+            this.bestCell = bestCell;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Get the value of the position for the player to move
+         * @return Tablebase.WIN, DRAW or LOSS
+         */
+        public int getValue() {
+            return value;
+        }
+
+        /**
+         * Get a move that keeps the value
+         * @return The cell (row * size + column), or -1 if the position is lost or over
+         */
+        public int getBestCell() {
+            return bestCell;
+        }
+
+        /**
+         * Get the number of moves played by the search
+         * @return Nodes visited
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        @Override
+        public String toString() {
+            String name = value == Tablebase.WIN ? "win" : value == Tablebase.DRAW ? "draw" : "loss";
+            return String.format("%s, best cell %d, %d nodes in %.2f s", name, bestCell, nodes, elapsedNanos / 1e9);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo;
+
+/**
+ * Statistics of a single AI move, for logging and latency monitoring.
+ * Instances are immutable.
+ */
+public class SearchReport {
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+    private final int score;
+    private final boolean cancelled;
+
+    /**
+     * Constructor for a search report
+     * @param depth Deepest search depth that completed
+     * @param nodes Number of nodes visited over all depths
+     * @param elapsedNanos Wall-clock time spent on the move
+     * @param score Score of the chosen move at the completed depth
+     * @param cancelled true if the search was cancelled before its deadline
+     */
+    public SearchReport(int depth, long nodes, long elapsedNanos, int score, boolean cancelled) {
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.score = score;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Get the deepest completed search depth
+     * @return Depth in plies, 0 if not even depth 1 completed
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the number of nodes visited
+     * @return The node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the time spent on the move
+     * @return Elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000L;
+    }
+
+    /**
+     * Get the search speed
+     * @return Nodes searched per second
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos > 0 ? nodes * 1_000_000_000L / elapsedNanos : 0;
+    }
+
+    /**
+     * Get the score of the chosen move
+     * @return Score for the player who moved
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Check if the search was cancelled
+     * @return true if cancelled before its deadline
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * String representation of the report
+     * @return String with depth, nodes, time and speed
+     */
+    @Override
+    public String toString() {
+        return "depth " + depth + ", " + nodes + " nodes in " + getElapsedMillis() + " ms ("
+                + getNodesPerSecond() + " nodes/s)" + (cancelled ? ", cancelled" : "");
+    }
+}
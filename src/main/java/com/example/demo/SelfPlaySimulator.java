@@ -0,0 +1,243 @@
+package com.example.demo;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Headless batch runner that plays engines against each other through Game and Board,
+ * without sockets or JavaFX, to measure engine strength and throughput.
+ *
+ * Games are spread over the common fork/join pool with a parallel stream. Every game draws
+ * its random moves from its own generator, seeded from the batch seed and the game number,
+ * and engines are reset between games, so a batch is reproducible whatever the thread
+ * count as long as the engines themselves are deterministic (random and fixed-depth
+ * alpha-beta are; parallel and time-limited engines are not).
+ *
+ * Engines are named by a spec: "random", "alphabeta[:depth]", "parallel[:depth]",
+ * "deepening[:millis]" or "mcts[:millis]".
+ */
+public class SelfPlaySimulator {
+    private static final long SEARCH_TIME_LIMIT_MILLIS = 60_000;
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    private final String xSpec;
+    private final String oSpec;
+    private final int randomPlies;
+
+    // One engine per side and worker thread, created on first use
+    private final ThreadLocal<MoveEngine> xEngines;
+    private final ThreadLocal<MoveEngine> oEngines;
+
+    /**
+     * Creates a simulator
+     * @param xSpec Engine spec for the player who plays 'X'
+     * @param oSpec Engine spec for the player who plays 'O'
+     * @param randomPlies Number of random moves at the start of every game, so that
+     *                    deterministic engines do not replay the same game
+     */
+    public SelfPlaySimulator(String xSpec, String oSpec, int randomPlies) {
+        this.xSpec = xSpec;
+        this.oSpec = oSpec;
+        this.randomPlies = randomPlies;
+        this.xEngines = ThreadLocal.withInitial(engineFactory(xSpec));
+        this.oEngines = ThreadLocal.withInitial(engineFactory(oSpec));
+    }
+
+    /**
+     * Build a factory for the engines described by a spec
+     * @param spec The engine spec
+     * @return A supplier of new engines, or of null for random play
+     */
+    private static Supplier<MoveEngine> engineFactory(String spec) {
+        String[] parts = spec.split(":");
+        int parameter = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+        switch (parts[0]) {
+            case "random":
+                return () -> null;
+            case "alphabeta":
+                return () -> new AlphaBetaEngine(SEARCH_TIME_LIMIT_MILLIS, parameter);
+            case "parallel":
+                return () -> new ParallelSearchEngine(ForkJoinPool.commonPool(), SEARCH_TIME_LIMIT_MILLIS,
+                        parameter, false);
+            case "deepening":
+                return () -> new IterativeDeepeningSearch(parameter > 0 ? parameter : 50);
+            case "mcts":
+                return () -> new MctsEngine(ForkJoinPool.commonPool(), parameter > 0 ? parameter : 50, 1,
+                        System.nanoTime(), 1 << 16);
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + spec);
+        }
+    }
+
+    /**
+     * Play a batch of games on one board size
+     * @param boardSize Size of the board
+     * @param games Number of games to play
+     * @param seed Seed for the random moves
+     * @return The results of the batch
+     */
+    public Summary run(int boardSize, int games, long seed) {
+        long start = System.nanoTime();
+        long[] totals = IntStream.range(0, games).parallel()
+                .collect(() -> new long[4], (counts, game) -> {
+                    int plies = playGame(boardSize, seed + game * SEED_STEP, counts);
+                    counts[3] += plies;
+                }, (a, b) -> {
+                    for (int i = 0; i < a.length; i++) {
+                        a[i] += b[i];
+                    }
+                });
+        return new Summary(boardSize, games, totals[0], totals[1], totals[2], totals[3],
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Play one game to the end
+     * @param boardSize Size of the board
+     * @param seed Seed for this game's random moves
+     * @param counts Counters of X wins, O wins and ties; the result is added to them
+     * @return The number of moves played
+     */
+    private int playGame(int boardSize, long seed, long[] counts) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Player playerX = new Player(xSpec, boardSize, 'X');
+        Player playerO = new Player(oSpec, boardSize, 'O');
+        Game game = new Game(playerX, playerO, boardSize);
+        game.start();
+
+        MoveEngine xEngine = xEngines.get();
+        MoveEngine oEngine = oEngines.get();
+        if (xEngine != null) {
+            xEngine.newGame();
+        }
+        if (oEngine != null) {
+            oEngine.newGame();
+        }
+
+        Board board = game.getGameBoard();
+        int cellCount = board.getCellCount();
+        int plies = 0;
+        while (game.getState() == Game.GameState.IN_PROGRESS) {
+            Player current = game.getCurrentPlayer();
+            MoveEngine engine = current == playerX ? xEngine : oEngine;
+            char symbol = current.getSymbol();
+
+            int packed;
+            if (engine == null || plies < randomPlies) {
+                // Pick the n-th empty cell
+                int pick = random.nextInt(cellCount - board.getFilledCells());
+                int cell = 0;
+                while (!board.isEmpty(cell) || pick-- > 0) {
+                    cell++;
+                }
+                packed = Move.pack(cell / boardSize, cell % boardSize, symbol);
+            } else {
+                packed = engine.chooseMove(board, symbol).pack();
+            }
+            if (!game.makeMove(packed)) {
+                throw new IllegalStateException("Engine " + current.getName() + " made an invalid move");
+            }
+            plies++;
+        }
+
+        if (game.getState() == Game.GameState.TIE) {
+            counts[2]++;
+        } else if (game.getWinner() == playerX) {
+            counts[0]++;
+        } else {
+            counts[1]++;
+        }
+        return plies;
+    }
+
+    /**
+     * Runs a batch from the command line and prints one summary per board size
+     * Usage: SelfPlaySimulator [games] [seed] [X engine] [O engine] [random plies] [sizes...]
+     * @param args Batch parameters
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+        String xSpec = args.length > 2 ? args[2] : "random";
+        String oSpec = args.length > 3 ? args[3] : "random";
+        int randomPlies = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+        SelfPlaySimulator simulator = new SelfPlaySimulator(xSpec, oSpec, randomPlies);
+        System.out.println(xSpec + " (X) vs " + oSpec + " (O), " + games + " games per size, seed " + seed);
+        if (args.length > 5) {
+            for (int i = 5; i < args.length; i++) {
+                System.out.println(simulator.run(Integer.parseInt(args[i]), games, seed));
+            }
+        } else {
+            for (int size = 3; size <= 5; size++) {
+                System.out.println(simulator.run(size, games, seed));
+            }
+        }
+    }
+
+    /**
+     * Results of a batch of games on one board size. Instances are immutable.
+     */
+    public static final class Summary {
+        private final int boardSize;
+        private final int games;
+        private final long xWins;
+        private final long oWins;
+        private final long ties;
+        private final long moves;
+        private final long elapsedNanos;
+
+        Summary(int boardSize, int games, long xWins, long oWins, long ties, long moves, long elapsedNanos) {
+            this.boardSize = boardSize;
+            this.games = games;
+            this.xWins = xWins;
+            this.oWins = oWins;
+            this.ties = ties;
+            this.moves = moves;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Get the number of games won by 'X'
+         * @return X wins
+         */
+        public long getXWins() {
+            return xWins;
+        }
+
+        /**
+         * Get the number of games won by 'O'
+         * @return O wins
+         */
+        public long getOWins() {
+            return oWins;
+        }
+
+        /**
+         * Get the number of tied games
+         * @return Ties
+         */
+        public long getTies() {
+            return ties;
+        }
+
+        /**
+         * Get the throughput of the batch
+         * @return Games played per second
+         */
+        public double getGamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            double percent = games == 0 ? 0 : 100.0 / games;
+            return String.format("%dx%d: %d games in %.2f s (%.0f games/s), X wins %.1f%%, O wins %.1f%%, ties %.1f%%, %.1f moves/game",
+                    boardSize, boardSize, games, elapsedNanos / 1e9, getGamesPerSecond(),
+                    xWins * percent, oWins * percent, ties * percent,
+                    games == 0 ? 0 : (double) moves / games);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.example.demo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ServerBenchmark compares the transports of the game server under load.
+ * It starts a server in this process, opens idle connections until the target count or the
+ * first failure (each one must be answered, so a server that can no longer start a thread
+ * for a client stops the count), then lets pairs of players play random games for a number
+ * of seconds. Latency is the round trip from sending MOVE to receiving the server's MOVE
+ * broadcast of that move, while the idle connections stay open.
+ *
+ * Players run on virtual threads in every mode, so the platform thread count reported
+ * is the server's. Server logging is silenced during the run.
+ */
+public class ServerBenchmark {
+    private static final String HOST = "localhost";
+
+    /**
+     * Runs the benchmark from the command line
+     * Usage: ServerBenchmark [blocking|virtual_threads|nio] [idle connections] [players] [seconds] [board size] [text|binary]
+     * @param args Transport, idle connection target, player count, duration, board size and the players' protocol
+     * @throws Exception If the server cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        GameServer.Transport transport = args.length > 0
+                ? GameServer.Transport.valueOf(args[0].toUpperCase())
+                : GameServer.Transport.VIRTUAL_THREADS;
+        int idleTarget = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int players = args.length > 2 ? Integer.parseInt(args[2]) & ~1 : 100;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int boardSize = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+        boolean binary = args.length > 5 && args[5].equalsIgnoreCase("binary");
+
+        PrintStream report = System.out;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(quiet);
+        System.setErr(quiet);
+
+        // Start the server on a free port
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        GameServer server = new GameServer(port, transport);
+        Thread serverThread = new Thread(server::start, "benchmark-server");
+        serverThread.start();
+        waitForServer(port);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        report.println("Transport " + transport + ", " + Runtime.getRuntime().availableProcessors() + " cores");
+
+        // Open idle connections, each answered once by the server
+        long start = System.nanoTime();
+        List<Socket> idle = new ArrayList<>();
+        String failure = null;
+        while (idle.size() < idleTarget) {
+            try {
+                idle.add(openIdle(port));
+            } catch (IOException | OutOfMemoryError e) {
+                failure = e.toString();
+                break;
+            }
+        }
+        long openMillis = (System.nanoTime() - start) / 1_000_000L;
+        report.println("Idle connections: " + idle.size() + " in " + openMillis + " ms"
+                + (failure != null ? " (stopped by " + failure + ")" : ""));
+        report.println("  platform threads " + threads.getThreadCount() + ", heap used " + heapUsedMegabytes() + " MB");
+
+        // After a failure, give back enough connections for the players and the server
+        if (failure != null) {
+            for (int i = 0; i < players + 16 && !idle.isEmpty(); i++) {
+                idle.remove(idle.size() - 1).close();
+            }
+            Thread.sleep(500);
+            report.println("  closed connections down to " + idle.size() + " for the players");
+        }
+
+        // Play random games until the deadline
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<PlayerClient> clients = new ArrayList<>();
+        List<Thread> clientThreads = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            PlayerClient client = new PlayerClient(port, "p" + i, boardSize, binary, deadline, i);
+            clients.add(client);
+            clientThreads.add(Thread.ofVirtual().start(client));
+        }
+        Thread.sleep(seconds * 1000L);
+        int peakThreads = threads.getPeakThreadCount();
+        long heapUsed = heapUsedMegabytes();
+        // Let games in progress finish; a player left waiting for an opponent is closed below
+        long joinDeadline = System.currentTimeMillis() + 2000;
+        for (Thread clientThread : clientThreads) {
+            clientThread.join(Math.max(1, joinDeadline - System.currentTimeMillis()));
+        }
+        for (PlayerClient client : clients) {
+            client.close();
+        }
+
+        // Merge the samples of all players
+        int sampleCount = 0;
+        int games = 0;
+        int errors = 0;
+        for (PlayerClient client : clients) {
+            sampleCount += client.sampleCount;
+            games += client.games;
+            errors += client.errors;
+        }
+        long[] samples = new long[sampleCount];
+        int offset = 0;
+        for (PlayerClient client : clients) {
+            System.arraycopy(client.samples, 0, samples, offset, client.sampleCount);
+            offset += client.sampleCount;
+        }
+        Arrays.sort(samples);
+
+        report.println("Players: " + players + " on " + boardSize + "x" + boardSize + " for " + seconds + " s"
+                + (binary ? " (binary frames)" : " (text)"));
+        report.println("  games " + games + ", moves " + sampleCount + " (" + sampleCount / Math.max(1, seconds)
+                + " moves/s), errors " + errors);
+        if (sampleCount > 0) {
+            report.println("  move latency p50 " + micros(samples, 0.50) + " us, p99 " + micros(samples, 0.99)
+                    + " us, max " + samples[sampleCount - 1] / 1000 + " us");
+        }
+        report.println("  peak platform threads " + peakThreads + ", heap used " + heapUsed + " MB");
+
+        for (Socket socket : idle) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+        server.stop();
+        System.exit(0);
+    }
+
+    /**
+     * Wait until the server accepts connections
+     * @param port The server port
+     * @throws InterruptedException If interrupted while waiting
+     */
+    private static void waitForServer(int port) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(HOST, port), 1000);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("Server did not start on port " + port);
+    }
+
+    /**
+     * Open a connection and wait for the server to answer on it, then leave it idle
+     * @param port The server port
+     * @return The open socket
+     * @throws IOException If the connection fails or is not answered
+     */
+    private static Socket openIdle(int port) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(HOST, port), 5000);
+            socket.setSoTimeout(5000);
+            socket.setTcpNoDelay(true);
+            // An unsupported board size is rejected without registering the connection
+            socket.getOutputStream().write("REGISTER:idle:0\n".getBytes());
+            int b;
+            while ((b = socket.getInputStream().read()) != '\n') {
+                if (b < 0) {
+                    throw new IOException("Connection closed by server");
+                }
+            }
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the heap in use after a collection
+     * @return Megabytes of heap in use
+     */
+    private static long heapUsedMegabytes() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+    }
+
+    /**
+     * Get a percentile of sorted samples
+     * @param samples Sorted latencies in nanoseconds
+     * @param fraction Percentile as a fraction (e.g. 0.99)
+     * @return The percentile in microseconds
+     */
+    private static long micros(long[] samples, double fraction) {
+        int index = Math.min(samples.length - 1, (int) Math.ceil(fraction * samples.length) - 1);
+        return samples[Math.max(0, index)] / 1000;
+    }
+
+    /**
+     * A player that registers, plays random moves and registers again until the deadline
+     */
+    private static class PlayerClient implements Runnable {
+        private final int port;
+        private final String name;
+        private final int boardSize;
+        private final boolean binary;
+        private final long deadline;
+        private final Random random;
+        private Socket socket;
+
+        private long[] samples = new long[1024];
+        private int sampleCount;
+        private int games;
+        private int errors;
+
+        /**
+         * Creates a player
+         * @param port The server port
+         * @param name The player's name
+         * @param boardSize The board size to register for
+         * @param binary true to play with WireProtocol frames instead of text lines
+         * @param deadline System.nanoTime after which no new game is started
+         * @param seed Seed of the random moves
+         */
+        PlayerClient(int port, String name, int boardSize, boolean binary, long deadline, long seed) {
+            this.port = port;
+            this.name = name;
+            this.boardSize = boardSize;
+            this.binary = binary;
+            this.deadline = deadline;
+            this.random = new Random(seed);
+        }
+
+        @Override
+        public void run() {
+            try {
+                socket = new Socket(HOST, port);
+                socket.setTcpNoDelay(true);
+                if (binary) {
+                    playFrames();
+                } else {
+                    playText();
+                }
+            } catch (IOException e) {
+                // Closed at the end of the run
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Play with the text protocol
+         * @throws IOException If the connection fails or is closed
+         */
+        private void playText() throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            out.println("REGISTER:" + name + ":" + boardSize);
+
+            boolean[] taken = new boolean[boardSize * boardSize];
+            String gameId = null;
+            char symbol = ' ';
+            long sentAt = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split(":");
+                switch (parts[0]) {
+                    case "MATCHED":
+                        gameId = parts[1];
+                        symbol = parts[2].charAt(0);
+                        Arrays.fill(taken, false);
+                        break;
+                    case "MOVE":
+                        taken[Integer.parseInt(parts[1]) * boardSize + Integer.parseInt(parts[2])] = true;
+                        if (parts[3].charAt(0) == symbol && sentAt != 0) {
+                            record(System.nanoTime() - sentAt);
+                            sentAt = 0;
+                        }
+                        break;
+                    case "YOUR_TURN":
+                        int cell = randomFreeCell(taken);
+                        sentAt = System.nanoTime();
+                        out.println("MOVE:" + gameId + ":" + cell / boardSize + ":" + cell % boardSize);
+                        break;
+                    case "GAME_OVER":
+                        games++;
+                        if (System.nanoTime() >= deadline) {
+                            return;
+                        }
+                        out.println("REGISTER:" + name + ":" + boardSize);
+                        break;
+                    case "ERROR":
+                        errors++;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Play with WireProtocol frames, asked for at the first registration
+         * @throws IOException If the connection fails or is closed, or the server refuses frames
+         */
+        private void playFrames() throws IOException {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            out.write(("REGISTER:" + name + ":" + boardSize + ":" + WireProtocol.OPTION + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            CommandParser acknowledgement = new CommandParser();
+            if (!acknowledgement.readLine(in)
+                    || !acknowledgement.is(2, WireProtocol.OPTION.getBytes(StandardCharsets.US_ASCII))) {
+                throw new IOException("Server refused frames: " + acknowledgement);
+            }
+
+            boolean[] taken = new boolean[boardSize * boardSize];
+            byte[] bytes = new byte[WireProtocol.MAX_FRAME_LENGTH];
+            ByteBuffer frame = ByteBuffer.wrap(bytes);
+            int gameId = -1;
+            char symbol = ' ';
+            long sentAt = 0;
+            int length;
+            while ((length = WireProtocol.readFrame(in, bytes)) >= 0) {
+                frame.clear().limit(length);
+                switch (frame.get()) {
+                    case WireProtocol.MATCHED:
+                        gameId = WireProtocol.readNumber(frame);
+                        symbol = (char) frame.get();
+                        Arrays.fill(taken, false);
+                        break;
+                    case WireProtocol.MOVED:
+                        int row = WireProtocol.readNumber(frame);
+                        int col = WireProtocol.readNumber(frame);
+                        taken[row * boardSize + col] = true;
+                        if (frame.get() == symbol && sentAt != 0) {
+                            record(System.nanoTime() - sentAt);
+                            sentAt = 0;
+                        }
+                        break;
+                    case WireProtocol.YOUR_TURN:
+                        int cell = randomFreeCell(taken);
+                        sentAt = System.nanoTime();
+                        out.write(WireProtocol.move(gameId, cell / boardSize, cell % boardSize));
+                        break;
+                    case WireProtocol.GAME_OVER:
+                        games++;
+                        if (System.nanoTime() >= deadline) {
+                            return;
+                        }
+                        out.write(WireProtocol.register(name, boardSize, boardSize, false, false));
+                        break;
+                    case WireProtocol.ERROR:
+                        errors++;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Pick a random empty cell
+         * @param taken Occupied cells
+         * @return The index of an empty cell
+         */
+        private int randomFreeCell(boolean[] taken) {
+            int cell = random.nextInt(taken.length);
+            while (taken[cell]) {
+                cell = (cell + 1) % taken.length;
+            }
+            return cell;
+        }
+
+        /**
+         * Record a move latency
+         * @param nanos Round trip in nanoseconds
+         */
+        private void record(long nanos) {
+            if (sampleCount == samples.length) {
+                samples = Arrays.copyOf(samples, sampleCount * 2);
+            }
+            samples[sampleCount++] = nanos;
+        }
+
+        /**
+         * Close the player's connection
+         */
+        void close() {
+            try {
+                if (socket != null) {
+                    socket.close();
+                }
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+}
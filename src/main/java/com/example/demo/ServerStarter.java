@@ -2,11 +2,16 @@ package com.example.demo;
 
 /*
 runs the server
+usage: ServerStarter [port] [blocking|virtual_threads|nio]
  */
 public class ServerStarter
 {
     public static void main(String[] args) {
-        GameServer server = new GameServer();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8888;
+        GameServer.Transport transport = args.length > 1
+                ? GameServer.Transport.valueOf(args[1].toUpperCase())
+                : GameServer.Transport.BLOCKING;
+        GameServer server = new GameServer(port, transport);
         server.start();
     }
 }
\ No newline at end of file
@@ -0,0 +1,236 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * SolvedPositions holds individual positions of a large board that were solved offline
+ * by ProofNumberSearch, such as critical 5x5 openings, with their value and best move.
+ *
+ * Positions are keyed by their canonical Zobrist hash (see Board.getCanonicalHash), so
+ * the 8 symmetric variants of a position share one entry, and the best cell is stored
+ * in the canonical orientation. Keys are sorted so a lookup is a binary search over the
+ * memory-mapped file.
+ *
+ * File format: magic "TTTS", version, board size, win length, layers, entry count (4 bytes),
+ * then the keys (8 bytes each, in ascending signed order), then one byte per entry holding
+ * the Tablebase value in the high 4 bits, and two bytes per entry holding the best cell plus
+ * one (0 when there is no move to suggest, e.g. in a lost position), so every cell of a
+ * 16x16 board can be stored. Version 1 files, with a single byte per cell, are rejected.
+ */
+public class SolvedPositions implements MoveLookup {
+    private static final byte[] MAGIC = {'T', 'T', 'T', 'S'};
+    private static final int VERSION = 2;
+    private static final int ENTRY_SIZE = 11;
+    private static final int HEADER_SIZE = 12;
+
+    private final int size;
+    private final int winLength;
+    private final int layers;
+    private final int count;
+    private final ByteBuffer keys;
+    private final ByteBuffer values;
+    private final ByteBuffer cells;
+
+    /**
+     * Constructor over the mapped sections of a file
+     * @param size Size of the board
+     * @param winLength Number of symbols in a row needed to win
+     * @param layers 1 for a flat board, size for a cube
+     * @param count Number of entries
+     * @param data The sections following the header
+     */
+    private SolvedPositions(int size, int winLength, int layers, int count, ByteBuffer data) {
+        this.size = size;
+        this.winLength = winLength;
+        this.layers = layers;
+        this.count = count;
+        this.keys = data.slice(0, count * 8);
+        this.values = data.slice(count * 8, count);
+        this.cells = data.slice(count * 9, count * 2);
+    }
+
+    /**
+     * Memory-map a solved positions file
+     * @param path Path of the file written by write
+     * @return The solved positions
+     * @throws IOException If the file cannot be read or is not a solved positions file
+     */
+    public static SolvedPositions open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (byte b : MAGIC) {
+                if (buffer.get() != b) {
+                    throw new IOException("Not a solved positions file: " + path);
+                }
+            }
+            int version = buffer.get();
+            int size = buffer.get();
+            int winLength = buffer.get();
+            int layers = buffer.get();
+            int count = buffer.getInt();
+            if (version != VERSION || size < 1 || winLength < 1 || winLength > size
+                    || (layers != 1 && layers != size) || count < 0) {
+                throw new IOException("Unsupported solved positions: version " + version + ", size " + size
+                        + ", win length " + winLength + ", layers " + layers);
+            }
+            if (channel.size() != HEADER_SIZE + (long) ENTRY_SIZE * count) {
+                throw new IOException("Truncated solved positions file: " + path);
+            }
+            return new SolvedPositions(size, winLength, layers, count, buffer.slice());
+        }
+    }
+
+    /**
+     * Look up the best move of a solved position
+     * @param board The position ('X' is assumed to have moved first)
+     * @param symbol The symbol of the player to move
+     * @return The best cell (row * size + column), or -1 if the position was not solved
+     *         or has no move worth suggesting
+     */
+    @Override
+    public int bestMove(Board board, char symbol) {
+        int transform = board.getCanonicalTransform();
+        int entry = find(board, board.getSymmetryHash(transform));
+        if (entry < 0) {
+            return -1;
+        }
+        int canonicalCell = (cells.getShort(entry * 2) & 0xFFFF) - 1;
+        if (canonicalCell < 0) {
+            return -1;
+        }
+        return board.getSymmetry().transformCell(BoardSymmetry.inverse(transform), canonicalCell);
+    }
+
+    /**
+     * Look up the value of a position for the player to move
+     * @param board The position ('X' is assumed to have moved first)
+     * @return Tablebase.WIN, DRAW or LOSS, or Tablebase.UNKNOWN if the position was not solved
+     */
+    public int probe(Board board) {
+        int entry = find(board, board.getCanonicalHash());
+        return entry < 0 ? Tablebase.UNKNOWN : (values.get(entry) >>> 4) & 0x0F;
+    }
+
+    /**
+     * Binary search for a canonical hash
+     * @return The entry index, or -1 if the rules differ or the key is not stored
+     */
+    private int find(Board board, long key) {
+        if (board.getSize() != size || board.getWinLength() != winLength || board.getLayers() != layers) {
+            return -1;
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long stored = keys.getLong(middle * 8);
+            if (stored < key) {
+                low = middle + 1;
+            } else if (stored > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the board size of these positions
+     * @return The board size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the win length these positions were solved for
+     * @return Number of symbols in a row needed to win
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Get the number of layers of the board
+     * @return 1 for a flat board, the size for a cube
+     */
+    public int getLayers() {
+        return layers;
+    }
+
+    /**
+     * Get the number of solved positions
+     * @return The entry count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Read every entry, to merge new results into an existing file
+     * @return Entries by canonical hash, each packed as value << 16 | (canonical best cell + 1)
+     */
+    SortedMap<Long, Integer> entries() {
+        SortedMap<Long, Integer> entries = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            entries.put(keys.getLong(i * 8), (values.get(i) & 0xF0) << 12 | (cells.getShort(i * 2) & 0xFFFF));
+        }
+        return entries;
+    }
+
+    /**
+     * Pack a solved position as an entry
+     * @param board The position
+     * @param value Tablebase.WIN, DRAW or LOSS for the player to move
+     * @param bestCell Best cell on the board, or -1 if none
+     * @return The packed entry for the position's canonical hash
+     */
+    static int entryOf(Board board, int value, int bestCell) {
+        int canonicalCell = bestCell >= 0
+                ? board.getSymmetry().transformCell(board.getCanonicalTransform(), bestCell)
+                : -1;
+        return value << 16 | (canonicalCell + 1);
+    }
+
+    /**
+     * Write a solved positions file
+     * @param path Path of the file to write
+     * @param size Size of the board
+     * @param winLength Number of symbols in a row needed to win
+     * @param layers 1 for a flat board, size for a cube
+     * @param entries Entries by canonical hash, packed by entryOf
+     * @throws IOException If the file cannot be written
+     */
+    static void write(Path path, int size, int winLength, int layers, SortedMap<Long, Integer> entries)
+            throws IOException {
+        int count = entries.size();
+        ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + ENTRY_SIZE * count);
+        data.put(MAGIC).put((byte) VERSION).put((byte) size).put((byte) winLength).put((byte) layers).putInt(count);
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : entries.entrySet()) {
+            data.putLong(HEADER_SIZE + i * 8, entry.getKey());
+            data.put(HEADER_SIZE + count * 8 + i, (byte) ((entry.getValue() >>> 16) << 4));
+            data.putShort(HEADER_SIZE + count * 9 + i * 2, (short) entry.getValue().intValue());
+            i++;
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (OutputStream out = Files.newOutputStream(path)) {
+            out.write(data.array());
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Tablebase holds the game-theoretic value of every reachable position of a small board,
+ * solved once offline and memory-mapped at runtime.
+ *
+ * Positions are numbered in base 3 (0 for an empty cell, 1 for 'X', 2 for 'O', cell 0
+ * being the least significant digit) and only canonical positions are stored: the
+ * canonical number of a position is the smallest number among its 8 symmetric variants.
+ * Each value takes 2 bits, so the 4x4 table (3^16 positions) is about 10 MB.
+ *
+ * File format: magic "TTTB", version, board size, win length, 1 reserved byte, then the 2-bit values
+ * in position order, four per byte starting at the low bits.
+ */
+public class Tablebase implements MoveLookup {
+    public static final int UNKNOWN = 0;
+    public static final int LOSS = 1;
+    public static final int DRAW = 2;
+    public static final int WIN = 3;
+
+    /**
+     * Largest board size a tablebase can be built for
+     */
+    public static final int MAX_SIZE = 4;
+
+    private static final byte[] MAGIC = {'T', 'T', 'T', 'B'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private final int size;
+    private final int winLength;
+    private final ByteBuffer values;
+    private final int[][] powers;
+
+    /**
+     * Constructor for a tablebase over a buffer of packed values
+     * @param size Size of the board
+     * @param winLength Number of symbols in a row needed to win
+     * @param values Packed 2-bit values, starting at position 0
+     */
+    private Tablebase(int size, int winLength, ByteBuffer values) {
+        this.size = size;
+        this.winLength = winLength;
+        this.values = values;
+        this.powers = symmetryPowers(size);
+    }
+
+    /**
+     * Memory-map a tablebase file
+     * @param path Path of the file written by generate
+     * @return The tablebase
+     * @throws IOException If the file cannot be read or is not a tablebase
+     */
+    public static Tablebase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (byte b : MAGIC) {
+                if (buffer.get() != b) {
+                    throw new IOException("Not a tablebase file: " + path);
+                }
+            }
+            int version = buffer.get();
+            int size = buffer.get();
+            int winLength = buffer.get();
+            if (version != VERSION || size < 1 || size > MAX_SIZE || winLength < 1 || winLength > size) {
+                throw new IOException("Unsupported tablebase: version " + version + ", size " + size
+                        + ", win length " + winLength);
+            }
+            long expected = HEADER_SIZE + (pow3(size * size) + 3) / 4;
+            if (channel.size() != expected) {
+                throw new IOException("Truncated tablebase file: " + path);
+            }
+            buffer.position(HEADER_SIZE);
+            return new Tablebase(size, winLength, buffer.slice());
+        }
+    }
+
+    /**
+     * Look up the value of a position for the player to move
+     * @param board The position ('X' is assumed to have moved first)
+     * @return WIN, DRAW or LOSS, or UNKNOWN if the rules do not match or the position is unreachable
+     */
+    public int probe(Board board) {
+        if (board.getSize() != size || board.getWinLength() != winLength || board.getLayers() != 1) {
+            return UNKNOWN;
+        }
+        return valueAt(canonicalIndex(board));
+    }
+
+    /**
+     * Find a move that keeps the best possible result
+     * @param board The position ('X' is assumed to have moved first)
+     * @param symbol The symbol of the player to move
+     * @return The best cell (row * size + column), or -1 if the position is not in the table
+     */
+    @Override
+    public int bestMove(Board board, char symbol) {
+        if (probe(board) == UNKNOWN) {
+            return -1;
+        }
+
+        Board work = new Board(board);
+        int bestCell = -1;
+        int bestValue = 0;
+        for (int cell = 0; cell < size * size; cell++) {
+            if (!work.isEmpty(cell)) {
+                continue;
+            }
+            int result = work.play(cell, symbol);
+            int value;
+            if (result == Board.WIN) {
+                value = WIN;
+            } else if (result == Board.TIE) {
+                value = DRAW;
+            } else {
+                value = negate(valueAt(canonicalIndex(work)));
+            }
+            work.unplay(cell);
+
+            if (value == WIN) {
+                return cell; // Cannot do better
+            }
+            if (value > bestValue) {
+                bestValue = value;
+                bestCell = cell;
+            }
+        }
+        return bestCell;
+    }
+
+    /**
+     * Get the board size of this tablebase
+     * @return The board size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the win length this tablebase was solved for
+     * @return Number of symbols in a row needed to win
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Read a packed value
+     */
+    private int valueAt(int index) {
+        return (values.get(index >>> 2) >>> ((index & 3) << 1)) & 3;
+    }
+
+    /**
+     * Compute the canonical base-3 number of a board
+     */
+    private int canonicalIndex(Board board) {
+        int best = Integer.MAX_VALUE;
+        for (int[] power : powers) {
+            int index = 0;
+            for (int cell = 0; cell < power.length; cell++) {
+                char symbol = board.getCell(cell);
+                if (symbol == 'X') {
+                    index += power[cell];
+                } else if (symbol == 'O') {
+                    index += 2 * power[cell];
+                }
+            }
+            best = Math.min(best, index);
+        }
+        return best;
+    }
+
+    /**
+     * Swap a value to the other player's point of view
+     */
+    private static int negate(int value) {
+        return value == WIN ? LOSS : value == LOSS ? WIN : value;
+    }
+
+    /**
+     * For each symmetry, the power of 3 that each cell contributes to
+     */
+    static int[][] symmetryPowers(int size) {
+        BoardSymmetry symmetry = BoardSymmetry.forSize(size);
+        int cellCount = size * size;
+        int[][] powers = new int[BoardSymmetry.COUNT][cellCount];
+        for (int t = 0; t < BoardSymmetry.COUNT; t++) {
+            for (int cell = 0; cell < cellCount; cell++) {
+                powers[t][cell] = (int) pow3(symmetry.transformCell(t, cell));
+            }
+        }
+        return powers;
+    }
+
+    static long pow3(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 3;
+        }
+        return result;
+    }
+
+    /**
+     * Solve every reachable position of a board size in memory
+     * @param size Size of the board (at most MAX_SIZE)
+     * @param winLength Number of symbols in a row needed to win
+     * @return The solved tablebase
+     */
+    static Tablebase solve(int size, int winLength) {
+        checkSize(size);
+        return new Tablebase(size, winLength, ByteBuffer.wrap(new Solver(size, winLength).solve()));
+    }
+
+    private static void checkSize(int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Tablebases are limited to boards up to " + MAX_SIZE + "x" + MAX_SIZE);
+        }
+    }
+
+    /**
+     * Solve every reachable position of a board size and write the tablebase file
+     * Positions are enumerated forward from the empty board one layer (stone count) at
+     * a time, then solved backwards from the fullest layer down: every position of a layer
+     * only depends on the layer after it, so each layer is solved in parallel.
+     * @param size Size of the board (at most MAX_SIZE)
+     * @param winLength Number of symbols in a row needed to win
+     * @param path Path of the file to write
+     * @throws IOException If the file cannot be written
+     */
+    public static void generate(int size, int winLength, Path path) throws IOException {
+        checkSize(size);
+        Solver solver = new Solver(size, winLength);
+        byte[] packed = solver.solve();
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (OutputStream out = Files.newOutputStream(path)) {
+            out.write(MAGIC);
+            out.write(new byte[] {VERSION, (byte) size, (byte) winLength, 0});
+            out.write(packed);
+        }
+    }
+
+    /**
+     * Builds a tablebase file from the command line
+     * Usage: Tablebase [size] [output file] [win length]
+     * @param args Board size, output path and win length
+     * @throws IOException If the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        Path path = Paths.get(args.length > 1 ? args[1] : "data/tablebase" + size + "x" + size + ".bin");
+        int winLength = args.length > 2 ? Integer.parseInt(args[2]) : size;
+
+        long start = System.nanoTime();
+        generate(size, winLength, path);
+        long millis = (System.nanoTime() - start) / 1_000_000L;
+
+        Board empty = new Board(size, winLength);
+        empty.initializeBoard();
+        int value = open(path).probe(empty);
+        System.out.println("Wrote " + path + " in " + millis + " ms; empty board is a "
+                + (value == WIN ? "win" : value == LOSS ? "loss" : "draw") + " for the first player");
+    }
+
+    /**
+     * Offline solver over base-3 position numbers
+     */
+    private static final class Solver {
+        private final int size;
+        private final int cellCount;
+        private final int[] power;
+        private final int[][] symmetryPowers;
+        private final int[][] lineCells;
+        private final byte[] packed;
+
+        Solver(int size, int winLength) {
+            this.size = size;
+            this.cellCount = size * size;
+            this.power = new int[cellCount];
+            for (int cell = 0; cell < cellCount; cell++) {
+                power[cell] = (int) pow3(cell);
+            }
+            this.symmetryPowers = symmetryPowers(size);
+            LineTable lines = LineTable.forRules(size, winLength);
+            this.lineCells = new int[lines.getLineCount()][];
+            for (int line = 0; line < lineCells.length; line++) {
+                lineCells[line] = lines.getLineCells(line);
+            }
+            this.packed = new byte[(int) ((pow3(cellCount) + 3) / 4)];
+        }
+
+        byte[] solve() {
+            // Forward: enumerate the reachable canonical positions, layer by layer
+            int positions = (int) pow3(cellCount);
+            AtomicLongArray seen = new AtomicLongArray((positions + 63) / 64);
+            int[][] layers = new int[cellCount + 1][];
+            layers[0] = new int[] {0};
+            for (int stones = 0; stones < cellCount; stones++) {
+                layers[stones + 1] = IntStream.of(layers[stones]).parallel()
+                        .flatMap(this::children)
+                        .filter(index -> markSeen(seen, index))
+                        .toArray();
+                Arrays.sort(layers[stones + 1]);
+            }
+
+            // Backward: solve each layer from the values of the next
+            for (int stones = cellCount; stones >= 0; stones--) {
+                int[] layer = layers[stones];
+                byte[] layerValues = new byte[layer.length];
+                IntStream.range(0, layer.length).parallel()
+                        .forEach(i -> layerValues[i] = (byte) solvePosition(layer[i]));
+                for (int i = 0; i < layer.length; i++) {
+                    int index = layer[i];
+                    packed[index >>> 2] |= (byte) (layerValues[i] << ((index & 3) << 1));
+                }
+            }
+            return packed;
+        }
+
+        /**
+         * Canonical children of a position, or none if the game is over
+         */
+        private IntStream children(int index) {
+            int[] digits = decode(index);
+            if (winner(digits) != 0) {
+                return IntStream.empty();
+            }
+            int mover = sideToMove(digits);
+            int[] result = new int[cellCount];
+            int count = 0;
+            for (int cell = 0; cell < cellCount; cell++) {
+                if (digits[cell] == 0) {
+                    digits[cell] = mover;
+                    result[count++] = canonical(digits);
+                    digits[cell] = 0;
+                }
+            }
+            return IntStream.of(result).limit(count);
+        }
+
+        /**
+         * Value of a position for the player to move, given solved children
+         */
+        private int solvePosition(int index) {
+            int[] digits = decode(index);
+            if (winner(digits) != 0) {
+                return LOSS; // The previous move won
+            }
+            int mover = sideToMove(digits);
+            int best = 0;
+            for (int cell = 0; cell < cellCount; cell++) {
+                if (digits[cell] == 0) {
+                    digits[cell] = mover;
+                    int child = canonical(digits);
+                    digits[cell] = 0;
+                    int value = negate((packed[child >>> 2] >>> ((child & 3) << 1)) & 3);
+                    if (value > best) {
+                        best = value;
+                        if (best == WIN) {
+                            break;
+                        }
+                    }
+                }
+            }
+            return best == 0 ? DRAW : best; // No empty cell left
+        }
+
+        private boolean markSeen(AtomicLongArray seen, int index) {
+            int word = index >>> 6;
+            long bit = 1L << (index & 63);
+            while (true) {
+                long current = seen.get(word);
+                if ((current & bit) != 0) {
+                    return false;
+                }
+                if (seen.compareAndSet(word, current, current | bit)) {
+                    return true;
+                }
+            }
+        }
+
+        private int[] decode(int index) {
+            int[] digits = new int[cellCount];
+            for (int cell = 0; cell < cellCount; cell++) {
+                digits[cell] = index % 3;
+                index /= 3;
+            }
+            return digits;
+        }
+
+        private int canonical(int[] digits) {
+            int best = Integer.MAX_VALUE;
+            for (int[] powers : symmetryPowers) {
+                int index = 0;
+                for (int cell = 0; cell < cellCount; cell++) {
+                    index += digits[cell] * powers[cell];
+                }
+                best = Math.min(best, index);
+            }
+            return best;
+        }
+
+        private int sideToMove(int[] digits) {
+            int stones = 0;
+            for (int digit : digits) {
+                if (digit != 0) {
+                    stones++;
+                }
+            }
+            return stones % 2 == 0 ? 1 : 2;
+        }
+
+        /**
+         * Digit of the player with a complete line, or 0
+         */
+        private int winner(int[] digits) {
+            for (int[] cells : lineCells) {
+                int first = digits[cells[0]];
+                if (first == 0) {
+                    continue;
+                }
+                boolean complete = true;
+                for (int i = 1; i < cells.length; i++) {
+                    if (digits[cells[i]] != first) {
+                        complete = false;
+                        break;
+                    }
+                }
+                if (complete) {
+                    return first;
+                }
+            }
+            return 0;
+        }
+    }
+}
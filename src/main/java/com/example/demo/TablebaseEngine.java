@@ -0,0 +1,52 @@
+package com.example.demo;
+
+/**
+ * Move engine that answers positions covered by a precomputed table (a tablebase or an
+ * opening book) with a lookup, and hands every other position to a fallback engine.
+ */
+public class TablebaseEngine implements MoveEngine {
+    private final MoveLookup lookup;
+    private final MoveEngine fallback;
+
+    /**
+     * Creates a tablebase engine
+     * @param lookup The solved positions
+     * @param fallback Engine used when the position is not in the table
+     */
+    public TablebaseEngine(MoveLookup lookup, MoveEngine fallback) {
+        this.lookup = lookup;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Choose a move for the given symbol
+     * @param board The current board (not modified)
+     * @param symbol The symbol of the player to move ('X' or 'O')
+     * @return A move that keeps the best result, or null if the board has no empty cell
+     */
+    @Override
+    public Move chooseMove(Board board, char symbol) {
+        int cell = lookup.bestMove(board, symbol);
+        if (cell < 0) {
+            return fallback.chooseMove(board, symbol);
+        }
+        int size = board.getSize();
+        return new Move(cell / size, cell % size, symbol);
+    }
+
+    /**
+     * Stop the fallback search, if one is running
+     */
+    @Override
+    public void cancel() {
+        fallback.cancel();
+    }
+
+    /**
+     * Reset the fallback engine between games
+     */
+    @Override
+    public void newGame() {
+        fallback.newGame();
+    }
+}
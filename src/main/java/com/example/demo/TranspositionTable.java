@@ -0,0 +1,155 @@
+package com.example.demo;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size hash table of search results keyed on the board's Zobrist hash.
+ * Each entry is packed into a single long, so probing and storing never allocate.
+ * Since 'X' always moves first, a position also determines the side to move,
+ * so the hash alone identifies a search node.
+ *
+ * Positions can also be stored by their canonical form (see BoardSymmetry), so the
+ * 8 rotations and reflections of a position share one entry.
+ *
+ * The table can be shared by several search threads without locking: each slot
+ * stores the entry next to (hash XOR entry), and a probe only accepts the slot if
+ * the two still agree, so an entry torn by a concurrent store reads as a miss.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+
+    // Entry layout: depth (8 bits) | unused | in-use bit | flag (2 bits) | best cell + 1 (16 bits) | score (32 bits)
+    private static final long IN_USE = 1L << 50;
+
+    private final AtomicLongArray checks;
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    /**
+     * Creates a table with 2^sizeBits entries
+     * @param sizeBits Base-2 logarithm of the number of entries
+     */
+    public TranspositionTable(int sizeBits) {
+        int capacity = 1 << sizeBits;
+        this.checks = new AtomicLongArray(capacity);
+        this.entries = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Look up a position
+     * @param hash Zobrist hash of the position
+     * @return The packed entry, or 0 if the position is not stored
+     */
+    public long probe(long hash) {
+        int slot = slotOf(hash);
+        long entry = entries.getOpaque(slot);
+        long check = checks.getOpaque(slot);
+        return (entry != 0 && (check ^ entry) == hash) ? entry : 0L;
+    }
+
+    /**
+     * Store a search result, replacing whatever occupied the slot
+     * @param hash Zobrist hash of the position
+     * @param depth Remaining depth the result was searched to
+     * @param flag EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param score Score of the position
+     * @param bestCell Best cell found (row * size + column), or -1 if none
+     */
+    public void store(long hash, int depth, int flag, int score, int bestCell) {
+        long entry = (long) (depth & 0xFF) << 56 | IN_USE | (long) (flag & 0x3) << 48
+                | (long) ((bestCell + 1) & 0xFFFF) << 32 | (score & 0xFFFFFFFFL);
+        int slot = slotOf(hash);
+        checks.setOpaque(slot, hash ^ entry);
+        entries.setOpaque(slot, entry);
+    }
+
+    /**
+     * Look up a position by its canonical form
+     * @param board The board holding the position
+     * @return The packed entry with its best cell mapped onto the board, or 0 if not stored
+     */
+    public long probe(Board board) {
+        int transform = board.getCanonicalTransform();
+        long entry = probe(board.getSymmetryHash(transform));
+        int cell = bestCellOf(entry);
+        if (entry == 0 || cell < 0 || transform == BoardSymmetry.IDENTITY) {
+            return entry;
+        }
+        if (cell >= board.getCellCount()) {
+            return 0L; // Entry from a larger board that happened to collide
+        }
+        int mapped = board.getSymmetry().transformCell(BoardSymmetry.inverse(transform), cell);
+        return (entry & ~(0xFFFFL << 32)) | (long) (mapped + 1) << 32;
+    }
+
+    /**
+     * Store a search result under a position's canonical form
+     * @param board The board holding the position
+     * @param depth Remaining depth the result was searched to
+     * @param flag EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param score Score of the position
+     * @param bestCell Best cell found on the board, or -1 if none
+     */
+    public void store(Board board, int depth, int flag, int score, int bestCell) {
+        int transform = board.getCanonicalTransform();
+        int canonicalCell = bestCell >= 0
+                ? board.getSymmetry().transformCell(transform, bestCell)
+                : -1;
+        store(board.getSymmetryHash(transform), depth, flag, score, canonicalCell);
+    }
+
+    /**
+     * Get the depth of an entry
+     * @param entry Entry returned by probe
+     * @return Remaining depth the entry was searched to
+     */
+    public static int depthOf(long entry) {
+        return (int) (entry >>> 56);
+    }
+
+    /**
+     * Get the bound type of an entry
+     * @param entry Entry returned by probe
+     * @return EXACT, LOWER_BOUND or UPPER_BOUND
+     */
+    public static int flagOf(long entry) {
+        return (int) (entry >>> 48) & 0x3;
+    }
+
+    /**
+     * Get the score of an entry
+     * @param entry Entry returned by probe
+     * @return The stored score
+     */
+    public static int scoreOf(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Get the best cell of an entry
+     * @param entry Entry returned by probe
+     * @return The best cell (row * size + column), or -1 if none
+     */
+    public static int bestCellOf(long entry) {
+        return ((int) (entry >>> 32) & 0xFFFF) - 1;
+    }
+
+    /**
+     * Remove all entries (not safe while other threads are searching)
+     */
+    public void clear() {
+        for (int slot = 0; slot <= mask; slot++) {
+            entries.setOpaque(slot, 0L);
+        }
+    }
+
+    /**
+     * Map a hash to a slot
+     */
+    private int slotOf(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.demo;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * WireProtocol is the binary form of the game protocol, for bots and other high-volume clients.
+ *
+ * A client asks for it by adding the BIN option to its text registration
+ * (e.g. REGISTER:name:3:BIN). A server that supports it answers REGISTERED:name:BIN as the
+ * last text line, and from then on both sides send frames instead of lines; a server that
+ * does not answers REGISTERED:name and the connection stays on text.
+ *
+ * A frame is its length as a varint, then an opcode byte, then the fields of the message:
+ * numbers as varints (7 bits per byte, low bits first, high bit set on all but the last byte),
+ * symbols as one byte and text as a varint length followed by UTF-8 bytes. A move such as
+ * MOVE:1234:1:2 is 6 bytes instead of the 14 of its line, and is decoded without building or
+ * splitting strings.
+ */
+public final class WireProtocol {
+    /**
+     * Registration option asking for binary frames
+     */
+    public static final String OPTION = "BIN";
+
+    /**
+     * Longest frame accepted, not counting its length prefix
+     */
+    public static final int MAX_FRAME_LENGTH = 4096;
+
+    // Client to server: REGISTER name, size, win length (0 for the size), flags
+    public static final int REGISTER = 1;
+    // MOVE game ID, row, column
+    public static final int MOVE = 2;
+    // HINT game ID
+    public static final int HINT = 3;
+    public static final int DISCONNECT = 4;
+
+    // Server to client: REGISTERED name
+    public static final int REGISTERED = 16;
+    // WAITING text
+    public static final int WAITING = 17;
+    // MATCHED game ID, symbol, text
+    public static final int MATCHED = 18;
+    // MOVED row, column, symbol
+    public static final int MOVED = 19;
+    // HINTED row, column
+    public static final int HINTED = 20;
+    public static final int YOUR_TURN = 21;
+    public static final int OPPONENT_TURN = 22;
+    // GAME_OVER result (GAME_TIE or GAME_WIN), winner name
+    public static final int GAME_OVER = 23;
+    public static final int OPPONENT_DISCONNECTED = 24;
+    // ERROR text
+    public static final int ERROR = 25;
+
+    // Flags of REGISTER
+    public static final int FLAG_VS_COMPUTER = 1;
+    public static final int FLAG_CUBE = 2;
+
+    // Results of GAME_OVER
+    public static final int GAME_TIE = 0;
+    public static final int GAME_WIN = 1;
+
+    private WireProtocol() {
+    }
+
+    /**
+     * Encode a registration
+     * @param name The player's name
+     * @param boardSize The requested board size
+     * @param winLength The number of symbols in a row needed to win
+     * @param cube true for a cube of boardSize layers
+     * @param vsComputer true to play against the computer
+     * @return The frame
+     */
+    public static byte[] register(String name, int boardSize, int winLength, boolean cube, boolean vsComputer) {
+        int flags = (vsComputer ? FLAG_VS_COMPUTER : 0) | (cube ? FLAG_CUBE : 0);
+        return new Frame(REGISTER).text(name).number(boardSize).number(winLength).number(flags).toBytes();
+    }
+
+    /**
+     * Encode a move
+     * @param gameId The game ID
+     * @param row The row of the move
+     * @param col The column of the move
+     * @return The frame
+     */
+    public static byte[] move(int gameId, int row, int col) {
+        return new Frame(MOVE).number(gameId).number(row).number(col).toBytes();
+    }
+
+    /**
+     * Encode a hint request
+     * @param gameId The game ID
+     * @return The frame
+     */
+    public static byte[] hint(int gameId) {
+        return new Frame(HINT).number(gameId).toBytes();
+    }
+
+    /**
+     * Encode a disconnect
+     * @return The frame
+     */
+    public static byte[] disconnect() {
+        return new Frame(DISCONNECT).toBytes();
+    }
+
+    /**
+     * Encode a message from the server as a frame, straight from its fields
+     * @param opcode The server opcode (REGISTERED to ERROR)
+     * @param first The game ID of MATCHED, the row of MOVED and HINTED, or the result of GAME_OVER
+     * @param second The column of MOVED and HINTED
+     * @param symbol The symbol of MATCHED and MOVED
+     * @param text The text of REGISTERED, WAITING, MATCHED and ERROR, or the winner of GAME_OVER (null for none)
+     * @return The frame
+     * @throws IllegalArgumentException If the opcode is not sent by the server
+     */
+    public static byte[] encodeServerMessage(int opcode, int first, int second, char symbol, String text) {
+        Frame frame = new Frame(opcode);
+        switch (opcode) {
+            case REGISTERED:
+            case WAITING:
+            case ERROR:
+                return frame.text(text).toBytes();
+            case MATCHED:
+                return frame.number(first).symbol(symbol).text(text).toBytes();
+            case MOVED:
+                return frame.number(first).number(second).symbol(symbol).toBytes();
+            case HINTED:
+                return frame.number(first).number(second).toBytes();
+            case GAME_OVER:
+                return frame.number(first).text(first == GAME_WIN ? text : null).toBytes();
+            case YOUR_TURN:
+            case OPPONENT_TURN:
+            case OPPONENT_DISCONNECTED:
+                return frame.toBytes();
+            default:
+                throw new IllegalArgumentException("Not a server opcode: " + opcode);
+        }
+    }
+
+    /**
+     * Format a message from the server as a line of the text protocol, with its terminator
+     * @param opcode The server opcode (REGISTERED to ERROR)
+     * @param first The game ID of MATCHED, the row of MOVED and HINTED, or the result of GAME_OVER
+     * @param second The column of MOVED and HINTED
+     * @param symbol The symbol of MATCHED and MOVED
+     * @param text The text of REGISTERED, WAITING, MATCHED and ERROR, or the winner of GAME_OVER (null for none)
+     * @return The UTF-8 bytes of the line, e.g. MOVE:1:2:X and a newline
+     * @throws IllegalArgumentException If the opcode is not sent by the server
+     */
+    public static byte[] formatServerMessage(int opcode, int first, int second, char symbol, String text) {
+        StringBuilder line = new StringBuilder(32);
+        switch (opcode) {
+            case REGISTERED:
+                line.append("REGISTERED:").append(text);
+                break;
+            case WAITING:
+                line.append("WAITING:").append(text);
+                break;
+            case MATCHED:
+                line.append("MATCHED:").append(first).append(':').append(symbol).append(':').append(text);
+                break;
+            case MOVED:
+                line.append("MOVE:").append(first).append(':').append(second).append(':').append(symbol);
+                break;
+            case HINTED:
+                line.append("HINT:").append(first).append(':').append(second);
+                break;
+            case YOUR_TURN:
+                line.append("YOUR_TURN");
+                break;
+            case OPPONENT_TURN:
+                line.append("OPPONENT_TURN");
+                break;
+            case GAME_OVER:
+                if (first == GAME_WIN) {
+                    line.append("GAME_OVER:WIN:").append(text);
+                } else {
+                    line.append("GAME_OVER:TIE");
+                }
+                break;
+            case OPPONENT_DISCONNECTED:
+                line.append("OPPONENT_DISCONNECTED");
+                break;
+            case ERROR:
+                line.append("ERROR:").append(text);
+                break;
+            default:
+                throw new IllegalArgumentException("Not a server opcode: " + opcode);
+        }
+        return line.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read one frame
+     * @param in The stream to read from
+     * @param frame Buffer of at least MAX_FRAME_LENGTH bytes
+     * @return The length of the frame, or -1 at the end of the stream
+     * @throws IOException If the stream fails, ends inside a frame, or the frame is too long
+     */
+    public static int readFrame(InputStream in, byte[] frame) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (shift == 0) {
+                    return -1;
+                }
+                throw new EOFException("End of stream inside a frame length");
+            }
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            if (shift >= 28) {
+                throw new IOException("Malformed frame length");
+            }
+        }
+        if (length < 1 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Frame length out of range: " + length);
+        }
+        int read = 0;
+        while (read < length) {
+            int count = in.read(frame, read, length - read);
+            if (count < 0) {
+                throw new EOFException("End of stream inside a frame");
+            }
+            read += count;
+        }
+        return length;
+    }
+
+    /**
+     * Find a complete frame at the start of received bytes
+     * @param bytes The received bytes
+     * @param from Offset of the first byte
+     * @param to Offset after the last byte
+     * @return The length of the length prefix and of the frame, as prefix << 16 | length,
+     *         or -1 if the frame is not complete yet
+     * @throws IOException If the frame length is malformed or out of range
+     */
+    public static int findFrame(byte[] bytes, int from, int to) throws IOException {
+        int length = 0;
+        int prefix = 0;
+        while (true) {
+            if (from + prefix >= to) {
+                return -1;
+            }
+            int b = bytes[from + prefix];
+            length |= (b & 0x7F) << (7 * prefix);
+            prefix++;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            if (prefix >= 5) {
+                throw new IOException("Malformed frame length");
+            }
+        }
+        if (length < 1 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Frame length out of range: " + length);
+        }
+        return from + prefix + length <= to ? prefix << 16 | length : -1;
+    }
+
+    /**
+     * Read a varint field
+     * @param frame The frame, positioned at the field
+     * @return The number
+     */
+    public static int readNumber(ByteBuffer frame) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = frame.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed number");
+    }
+
+    /**
+     * Read a text field
+     * @param frame The frame, positioned at the field
+     * @return The text
+     */
+    public static String readText(ByteBuffer frame) {
+        int length = readNumber(frame);
+        if (length < 0 || length > frame.remaining()) {
+            throw new IllegalArgumentException("Text length out of range: " + length);
+        }
+        String text = new String(frame.array(), frame.arrayOffset() + frame.position(), length, StandardCharsets.UTF_8);
+        frame.position(frame.position() + length);
+        return text;
+    }
+
+    /**
+     * Builds a frame field by field
+     */
+    private static class Frame {
+        private byte[] bytes = new byte[16];
+        private int length;
+
+        Frame(int opcode) {
+            bytes[length++] = (byte) opcode;
+        }
+
+        Frame number(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+            return this;
+        }
+
+        Frame symbol(char symbol) {
+            ensure(1);
+            bytes[length++] = (byte) symbol;
+            return this;
+        }
+
+        Frame text(String text) {
+            if (text == null) {
+                return number(0);
+            }
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            number(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+            return this;
+        }
+
+        /**
+         * Get the frame with its length prefix
+         */
+        byte[] toBytes() {
+            int prefix = length < 0x80 ? 1 : length < 0x4000 ? 2 : 3;
+            byte[] frame = new byte[prefix + length];
+            int value = length;
+            for (int i = 0; i < prefix; i++) {
+                frame[i] = (byte) ((value & 0x7F) | (i < prefix - 1 ? 0x80 : 0));
+                value >>>= 7;
+            }
+            System.arraycopy(bytes, 0, frame, prefix, length);
+            return frame;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, length + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ZobristKeys holds the random 64-bit keys used to hash board positions.
+ * A position's hash is the XOR of the keys of its occupied cells, so it can be
+ * updated with a single XOR whenever a symbol is placed or removed.
+ * Keys are generated from a fixed seed, so hashes are stable across runs.
+ */
+public final class ZobristKeys {
+    private static final long SEED = 0x5DEECE66DL;
+    private static final Map<Integer, ZobristKeys> CACHE = new ConcurrentHashMap<>();
+
+    private final long[] keys;
+
+    /**
+     * Get the shared keys for a square board size
+     * @param size Size of the board (e.g., 3 for a 3x3 board)
+     * @return The keys for that size
+     */
+    public static ZobristKeys forSize(int size) {
+        return forShape(size, 1);
+    }
+
+    /**
+     * Get the shared keys for a board of stacked square layers
+     * @param size Size of each layer
+     * @param layers Number of layers (1 for a flat board, size for a cube)
+     * @return The keys for that shape
+     */
+    public static ZobristKeys forShape(int size, int layers) {
+        return CACHE.computeIfAbsent(size << 16 | layers, key -> new ZobristKeys(size, layers));
+    }
+
+    /**
+     * Generates one key per cell and symbol
+     * @param size Size of each layer
+     * @param layers Number of layers
+     */
+    private ZobristKeys(int size, int layers) {
+        SplittableRandom random = new SplittableRandom(SEED + size + ((long) (layers - 1) << 16));
+        this.keys = new long[layers * size * size * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Get the key for a symbol on a cell
+     * @param cell Cell index ((layer * size + row) * size + column)
+     * @param player 0 for 'X', 1 for 'O'
+     * @return The Zobrist key
+     */
+    public long get(int cell, int player) {
+        return keys[(cell << 1) | player];
+    }
+}